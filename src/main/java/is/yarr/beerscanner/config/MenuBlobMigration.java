@@ -0,0 +1,67 @@
+package is.yarr.beerscanner.config;
+
+import is.yarr.beerscanner.service.menu.MenuBlobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Moves menu content stored in {@code bar_checks.menu_content} by earlier versions into the {@link MenuBlobStore}.
+ * Rows are migrated in small batches, so the payloads are never all loaded at once, and each row is cleared once its
+ * blob is written. Safe to run on every startup, and on several instances at once.
+ */
+@Component
+public class MenuBlobMigration implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MenuBlobMigration.class);
+
+    private static final int BATCH_SIZE = 20;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MenuBlobStore menuBlobStore;
+
+    public MenuBlobMigration(JdbcTemplate jdbcTemplate, MenuBlobStore menuBlobStore) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.menuBlobStore = menuBlobStore;
+    }
+
+    private record StoredMenu(long id, String contentType, String menuContent) {
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int migrated = 0;
+        int failed = 0;
+        long lastId = 0;
+
+        List<StoredMenu> batch;
+        do {
+            batch = jdbcTemplate.query("SELECT id, content_type, menu_content FROM bar_checks WHERE menu_content IS NOT NULL AND id > ? ORDER BY id LIMIT ?",
+                    (rs, rowNum) -> new StoredMenu(rs.getLong("id"), rs.getString("content_type"), rs.getString("menu_content")),
+                    lastId, BATCH_SIZE);
+
+            for (var menu : batch) {
+                lastId = menu.id();
+
+                try {
+                    var content = MenuBlobStore.decodeLegacyContent(menu.menuContent(), menu.contentType());
+                    var key = menuBlobStore.put(content);
+                    jdbcTemplate.update("UPDATE bar_checks SET menu_blob_key = ?, menu_content = NULL WHERE id = ?", key, menu.id());
+                    migrated++;
+                } catch (Exception e) {
+                    LOGGER.warn("Failed to move menu of check {} to the blob store: {}", menu.id(), e.getMessage());
+                    failed++;
+                }
+            }
+        } while (batch.size() == BATCH_SIZE);
+
+        if (migrated > 0 || failed > 0) {
+            LOGGER.info("Moved {} stored menus to the blob store ({} failed)", migrated, failed);
+        }
+    }
+}
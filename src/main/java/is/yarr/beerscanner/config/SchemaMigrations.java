@@ -0,0 +1,48 @@
+package is.yarr.beerscanner.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Schema changes that Hibernate's {@code ddl-auto=update} doesn't make by itself, run once the schema has been updated.
+ * Every statement must be safe to run on every startup.
+ */
+@Component
+public class SchemaMigrations implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchemaMigrations.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SchemaMigrations(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        // Hibernate only creates the check constraint on enum columns with the table (or column), so tables created
+        // before a value was added to one of these enums would reject it. The enums are validated by the application
+        // instead.
+        execute("ALTER TABLE bar_checks DROP CONSTRAINT IF EXISTS bar_checks_processing_status_check");
+        execute("ALTER TABLE bar_checks DROP CONSTRAINT IF EXISTS bar_checks_extraction_mode_check");
+        execute("ALTER TABLE bars DROP CONSTRAINT IF EXISTS bars_readiness_strategy_check");
+        execute("ALTER TABLE bars DROP CONSTRAINT IF EXISTS bars_scrape_method_check");
+
+        // Perceptual hashes of image menus were recorded for a while, but never used
+        execute("ALTER TABLE bars DROP COLUMN IF EXISTS last_perceptual_hash");
+        execute("ALTER TABLE bar_checks DROP COLUMN IF EXISTS perceptual_hash");
+        execute("ALTER TABLE bar_checks DROP COLUMN IF EXISTS perceptual_distance");
+    }
+
+    private void execute(String sql) {
+        try {
+            jdbcTemplate.execute(sql);
+        } catch (Exception e) {
+            LOGGER.warn("Schema migration failed: {}: {}", sql, e.getMessage());
+        }
+    }
+}
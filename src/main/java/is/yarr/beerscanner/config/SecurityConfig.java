@@ -3,6 +3,7 @@ package is.yarr.beerscanner.config;
 import is.yarr.beerscanner.security.JwtAuthenticationFilter;
 import is.yarr.beerscanner.security.OAuth2AuthenticationSuccessHandler;
 import is.yarr.beerscanner.service.CustomOAuth2UserService;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -53,6 +54,8 @@ public class SecurityConfig {
                 .requestMatchers("/api/v1/auth/**", "/oauth2/**", "/api/v1/bars/public/**", "/api/v1/beers/public/**", "/api/v1/users/profile-picture/**").permitAll()
                 .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
                 .requestMatchers("/actuator/**").permitAll()
+                // Async results (admin checks, job event streams) were already authorized on the original request
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 // Protected endpoints
                 .anyRequest().authenticated()
             )
@@ -7,7 +7,7 @@ import is.yarr.beerscanner.dto.BeerAvailabilityDTO;
 import is.yarr.beerscanner.model.Bar;
 import is.yarr.beerscanner.model.BarCheck;
 import is.yarr.beerscanner.model.BarWebpageSettings;
-import is.yarr.beerscanner.scheduler.BarCheckScheduler;
+import is.yarr.beerscanner.scheduler.CheckJobService;
 import is.yarr.beerscanner.security.UserPrincipal;
 import is.yarr.beerscanner.service.BarCheckService;
 import is.yarr.beerscanner.service.BarService;
@@ -17,6 +17,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -31,6 +32,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
@@ -44,13 +46,13 @@ public class BarController {
     private final BarService barService;
     private final BarCheckService barCheckService;
     private final DTOMapperService dtoMapperService;
-    private final BarCheckScheduler barCheckScheduler;
+    private final CheckJobService checkJobService;
 
-    public BarController(BarService barService, BarCheckService barCheckService, DTOMapperService dtoMapperService, BarCheckScheduler barCheckScheduler) {
+    public BarController(BarService barService, BarCheckService barCheckService, DTOMapperService dtoMapperService, CheckJobService checkJobService) {
         this.barService = barService;
         this.barCheckService = barCheckService;
         this.dtoMapperService = dtoMapperService;
-        this.barCheckScheduler = barCheckScheduler;
+        this.checkJobService = checkJobService;
     }
 
     /**
@@ -279,6 +281,10 @@ public class BarController {
                     .cleanupScript(barDTO.getCleanupScript())
                     .processAsText(barDTO.isProcessAsText())
                     .build();
+            barWebpageSettings.setReadinessStrategy(barDTO.getReadinessStrategy());
+            barWebpageSettings.setReadinessTimeoutSeconds(barDTO.getReadinessTimeoutSeconds());
+            barWebpageSettings.setBlockResources(barDTO.getBlockResources());
+            barWebpageSettings.setUnblockedResourcePatterns(barDTO.getUnblockedResourcePatterns());
         }
 
         // Convert DTO to entity
@@ -292,6 +298,7 @@ public class BarController {
 
                 .webpageSettings(barWebpageSettings)
                 .build();
+        bar.setOpensAt(barDTO.getOpensAt());
 
         Bar updatedBar = barService.updateBar(id, bar);
 
@@ -364,43 +371,24 @@ public class BarController {
 
     /**
      * Manually check a bar (admin only).
+     * The check runs as a background job, and the request is completed asynchronously once it's done, so no request
+     * thread is held in the meantime. Use {@link CheckJobController} to get a job ID and poll or stream its progress.
      *
      * @param barId the bar ID
-     * @return the created check DTO
+     * @return the created check DTO, or a 409 Conflict response if the bar is already being checked by another run
      */
     @PostMapping("/api/v1/admin/bars/{barId}/check")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<BarCheckDTO> checkBar(@PathVariable Long barId) {
-        Bar bar = barService.getBarById(barId);
-
-        return barCheckScheduler.checkBar(bar, true)
-                .map(dtoMapperService::toDTO)
-                .map(ResponseEntity::ok)
-                .orElseGet(() -> ResponseEntity.internalServerError().build());
+    public CompletableFuture<ResponseEntity<BarCheckDTO>> checkBar(@PathVariable Long barId) {
+        var job = checkJobService.startBarCheck(barId);
+
+        return checkJobService.whenFinished(job.getId())
+                .orElseThrow()
+                .thenApply(finishedJob -> finishedJob.getChecks().stream()
+                        .findFirst()
+                        .map(ResponseEntity::ok)
+                        .orElseGet(() -> finishedJob.getSkippedBars() > 0
+                                ? ResponseEntity.status(HttpStatus.CONFLICT).build()
+                                : ResponseEntity.internalServerError().build()));
     }
-
-    /**
-     * Manually check a bar (admin only).
-     *
-     * @param barId the bar ID
-     * @return the created check DTO
-     */
-//    @GetMapping("/api/v1/admin/bars/check")
-//    @PreAuthorize("hasRole('ADMIN')")
-//    public ResponseEntity<BarCheckDTO> checkAllBar() {
-//        System.out.println("aaaaaaaa");
-//        List<Bar> barsToCheck = barService.getBarsToCheck();
-//
-//        for (Bar bar : barsToCheck) {
-//            System.out.println("bar = " + bar);
-//
-//            try {
-//                barCheckScheduler.checkBar(bar);
-//            } catch (Exception e) {
-//                e.printStackTrace();
-//            }
-//        }
-//
-//        return ResponseEntity.ok(null);
-//    }
 }
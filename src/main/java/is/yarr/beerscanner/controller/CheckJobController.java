@@ -0,0 +1,81 @@
+package is.yarr.beerscanner.controller;
+
+import is.yarr.beerscanner.dto.CheckJobDTO;
+import is.yarr.beerscanner.scheduler.CheckJobService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.UUID;
+
+/**
+ * Controller for admin-triggered check jobs.
+ * Starting a job returns its ID immediately, and its progress can then be polled or streamed as server-sent events.
+ */
+@RestController
+@RequestMapping("/api/v1/admin/check-jobs")
+public class CheckJobController {
+
+    private final CheckJobService checkJobService;
+
+    public CheckJobController(CheckJobService checkJobService) {
+        this.checkJobService = checkJobService;
+    }
+
+    /**
+     * Start checking a single bar, ignoring its menu hash.
+     *
+     * @param barId the bar ID
+     * @return the queued job
+     */
+    @PostMapping("/bars/{barId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CheckJobDTO> checkBar(@PathVariable Long barId) {
+        return ResponseEntity.accepted().body(checkJobService.startBarCheck(barId));
+    }
+
+    /**
+     * Start checking all bars with a menu.
+     *
+     * @return the queued job
+     */
+    @PostMapping("/bars")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CheckJobDTO> checkAllBars() {
+        return ResponseEntity.accepted().body(checkJobService.startAllBarsCheck());
+    }
+
+    /**
+     * Get the progress and results of a job.
+     *
+     * @param jobId the job ID
+     * @return the job
+     */
+    @GetMapping("/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CheckJobDTO> getJob(@PathVariable UUID jobId) {
+        return checkJobService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Stream the progress of a job as server-sent events.
+     *
+     * @param jobId the job ID
+     * @return the event stream
+     */
+    @GetMapping(path = "/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<SseEmitter> streamJob(@PathVariable UUID jobId) {
+        return checkJobService.subscribe(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
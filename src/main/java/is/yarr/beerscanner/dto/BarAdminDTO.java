@@ -2,8 +2,10 @@ package is.yarr.beerscanner.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import is.yarr.beerscanner.model.BarWebpageSettings;
 
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 
 public class BarAdminDTO {
 
@@ -21,6 +23,9 @@ public class BarAdminDTO {
     private String menuXPath;
     private String lastMenuHash;
 
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm")
+    private LocalTime opensAt;
+
     @JsonProperty("approved")
     private boolean isApproved;
 
@@ -35,11 +40,15 @@ public class BarAdminDTO {
     private String ageVerificationXPath;
     private String cleanupScript;
     private boolean processAsText;
+    private BarWebpageSettings.ReadinessStrategy readinessStrategy;
+    private Integer readinessTimeoutSeconds;
+    private Boolean blockResources;
+    private String unblockedResourcePatterns;
 
     public BarAdminDTO() {
     }
 
-    public BarAdminDTO(Long id, String name, String location, int currentBeerCount, LocalDateTime lastCheckedAt, String aiInstructions, String menuUrl, String menuXPath, String lastMenuHash, boolean isApproved, LocalDateTime createdAt, LocalDateTime updatedAt, String menuComponentXPath, String ageVerificationXPath, String cleanupScript, boolean processAsText) {
+    public BarAdminDTO(Long id, String name, String location, int currentBeerCount, LocalDateTime lastCheckedAt, String aiInstructions, String menuUrl, String menuXPath, String lastMenuHash, boolean isApproved, LocalDateTime createdAt, LocalDateTime updatedAt, String menuComponentXPath, String ageVerificationXPath, String cleanupScript, boolean processAsText, LocalTime opensAt, BarWebpageSettings.ReadinessStrategy readinessStrategy, Integer readinessTimeoutSeconds, Boolean blockResources, String unblockedResourcePatterns) {
         this.id = id;
         this.name = name;
         this.location = location;
@@ -56,6 +65,11 @@ public class BarAdminDTO {
         this.ageVerificationXPath = ageVerificationXPath;
         this.cleanupScript = cleanupScript;
         this.processAsText = processAsText;
+        this.opensAt = opensAt;
+        this.readinessStrategy = readinessStrategy;
+        this.readinessTimeoutSeconds = readinessTimeoutSeconds;
+        this.blockResources = blockResources;
+        this.unblockedResourcePatterns = unblockedResourcePatterns;
     }
 
     public Long getId() {
@@ -130,6 +144,14 @@ public class BarAdminDTO {
         this.lastMenuHash = lastMenuHash;
     }
 
+    public LocalTime getOpensAt() {
+        return opensAt;
+    }
+
+    public void setOpensAt(LocalTime opensAt) {
+        this.opensAt = opensAt;
+    }
+
     public boolean isApproved() {
         return isApproved;
     }
@@ -186,6 +208,38 @@ public class BarAdminDTO {
         this.processAsText = processAsText;
     }
 
+    public BarWebpageSettings.ReadinessStrategy getReadinessStrategy() {
+        return readinessStrategy;
+    }
+
+    public void setReadinessStrategy(BarWebpageSettings.ReadinessStrategy readinessStrategy) {
+        this.readinessStrategy = readinessStrategy;
+    }
+
+    public Integer getReadinessTimeoutSeconds() {
+        return readinessTimeoutSeconds;
+    }
+
+    public void setReadinessTimeoutSeconds(Integer readinessTimeoutSeconds) {
+        this.readinessTimeoutSeconds = readinessTimeoutSeconds;
+    }
+
+    public Boolean getBlockResources() {
+        return blockResources;
+    }
+
+    public void setBlockResources(Boolean blockResources) {
+        this.blockResources = blockResources;
+    }
+
+    public String getUnblockedResourcePatterns() {
+        return unblockedResourcePatterns;
+    }
+
+    public void setUnblockedResourcePatterns(String unblockedResourcePatterns) {
+        this.unblockedResourcePatterns = unblockedResourcePatterns;
+    }
+
     public static BarAdminDTOBuilder builder() {
         return new BarAdminDTOBuilder();
     }
@@ -209,6 +263,11 @@ public class BarAdminDTO {
                 ", ageVerificationXPath='" + ageVerificationXPath + '\'' +
                 ", cleanupScript='" + cleanupScript + '\'' +
                 ", processAsText=" + processAsText +
+                ", opensAt=" + opensAt +
+                ", readinessStrategy=" + readinessStrategy +
+                ", readinessTimeoutSeconds=" + readinessTimeoutSeconds +
+                ", blockResources=" + blockResources +
+                ", unblockedResourcePatterns='" + unblockedResourcePatterns + '\'' +
                 '}';
     }
 
@@ -229,6 +288,11 @@ public class BarAdminDTO {
         private String ageVerificationXPath;
         private String cleanupScript;
         private boolean processAsText;
+        private LocalTime opensAt;
+        private BarWebpageSettings.ReadinessStrategy readinessStrategy;
+        private Integer readinessTimeoutSeconds;
+        private Boolean blockResources;
+        private String unblockedResourcePatterns;
 
         public BarAdminDTOBuilder id(Long id) {
             this.id = id;
@@ -310,10 +374,36 @@ public class BarAdminDTO {
             return this;
         }
 
+        public BarAdminDTOBuilder opensAt(LocalTime opensAt) {
+            this.opensAt = opensAt;
+            return this;
+        }
+
+        public BarAdminDTOBuilder readinessStrategy(BarWebpageSettings.ReadinessStrategy readinessStrategy) {
+            this.readinessStrategy = readinessStrategy;
+            return this;
+        }
+
+        public BarAdminDTOBuilder readinessTimeoutSeconds(Integer readinessTimeoutSeconds) {
+            this.readinessTimeoutSeconds = readinessTimeoutSeconds;
+            return this;
+        }
+
+        public BarAdminDTOBuilder blockResources(Boolean blockResources) {
+            this.blockResources = blockResources;
+            return this;
+        }
+
+        public BarAdminDTOBuilder unblockedResourcePatterns(String unblockedResourcePatterns) {
+            this.unblockedResourcePatterns = unblockedResourcePatterns;
+            return this;
+        }
+
         public BarAdminDTO build() {
             return new BarAdminDTO(id, name, location, currentBeerCount, lastCheckedAt, aiInstructions, menuUrl, menuXPath,
                     lastMenuHash, isApproved, createdAt, updatedAt,
-                    menuComponentXPath, ageVerificationXPath, cleanupScript, processAsText);
+                    menuComponentXPath, ageVerificationXPath, cleanupScript, processAsText, opensAt,
+                    readinessStrategy, readinessTimeoutSeconds, blockResources, unblockedResourcePatterns);
         }
     }
 }
@@ -24,11 +24,12 @@ public class BarCheckDTO {
     private LocalDateTime createdAt;
     private Set<BeerDTO> beersAdded;
     private Set<BeerDTO> beersRemoved;
+    private BarCheck.ExtractionMode extractionMode; // Only set if the menu was extracted
 
     public BarCheckDTO() {
     }
 
-    public BarCheckDTO(Long id, BarDTO bar, String menuHash, String contentType, boolean hasChanges, int processDuration, BarCheck.ProcessingStatus processingStatus, String errorMessage, LocalDateTime createdAt, Set<BeerDTO> beersAdded, Set<BeerDTO> beersRemoved) {
+    public BarCheckDTO(Long id, BarDTO bar, String menuHash, String contentType, boolean hasChanges, int processDuration, BarCheck.ProcessingStatus processingStatus, String errorMessage, LocalDateTime createdAt, Set<BeerDTO> beersAdded, Set<BeerDTO> beersRemoved, BarCheck.ExtractionMode extractionMode) {
         this.id = id;
         this.bar = bar;
         this.menuHash = menuHash;
@@ -40,6 +41,7 @@ public class BarCheckDTO {
         this.createdAt = createdAt;
         this.beersAdded = beersAdded;
         this.beersRemoved = beersRemoved;
+        this.extractionMode = extractionMode;
     }
 
     public Long getId() {
@@ -130,6 +132,14 @@ public class BarCheckDTO {
         this.beersRemoved = beersRemoved;
     }
 
+    public BarCheck.ExtractionMode getExtractionMode() {
+        return extractionMode;
+    }
+
+    public void setExtractionMode(BarCheck.ExtractionMode extractionMode) {
+        this.extractionMode = extractionMode;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -173,6 +183,7 @@ public class BarCheckDTO {
         private LocalDateTime createdAt;
         private Set<BeerDTO> beersAdded;
         private Set<BeerDTO> beersRemoved;
+        private BarCheck.ExtractionMode extractionMode;
 
         Builder() {
         }
@@ -232,8 +243,13 @@ public class BarCheckDTO {
             return this;
         }
 
+        public Builder extractionMode(BarCheck.ExtractionMode extractionMode) {
+            this.extractionMode = extractionMode;
+            return this;
+        }
+
         public BarCheckDTO build() {
-            return new BarCheckDTO(id, bar, menuHash, contentType, hasChanges, processDuration, processingStatus, errorMessage, createdAt, beersAdded, beersRemoved);
+            return new BarCheckDTO(id, bar, menuHash, contentType, hasChanges, processDuration, processingStatus, errorMessage, createdAt, beersAdded, beersRemoved, extractionMode);
         }
 
         public String toString() {
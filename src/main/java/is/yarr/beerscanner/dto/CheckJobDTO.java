@@ -0,0 +1,167 @@
+package is.yarr.beerscanner.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import is.yarr.beerscanner.scheduler.CheckJob;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * DTO for the progress and results of an admin-triggered check job.
+ */
+public class CheckJobDTO {
+    private UUID id;
+    private CheckJob.Type type;
+    private Long barId; // Only set for single-bar jobs
+    private CheckJob.Status status;
+    private int totalBars;
+    private int checkedBars;
+    private int failedBars;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime createdAt;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime finishedAt;
+
+    private List<BarCheckDTO> checks;
+    private int skippedBars; // Bars that weren't checked because another run is already checking them
+
+    public CheckJobDTO() {
+    }
+
+    public CheckJobDTO(UUID id, CheckJob.Type type, Long barId, CheckJob.Status status, int totalBars, int checkedBars,
+                       int failedBars, LocalDateTime createdAt, LocalDateTime finishedAt, List<BarCheckDTO> checks,
+                       int skippedBars) {
+        this.id = id;
+        this.type = type;
+        this.barId = barId;
+        this.status = status;
+        this.totalBars = totalBars;
+        this.checkedBars = checkedBars;
+        this.failedBars = failedBars;
+        this.createdAt = createdAt;
+        this.finishedAt = finishedAt;
+        this.checks = checks;
+        this.skippedBars = skippedBars;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public CheckJob.Type getType() {
+        return type;
+    }
+
+    public void setType(CheckJob.Type type) {
+        this.type = type;
+    }
+
+    public Long getBarId() {
+        return barId;
+    }
+
+    public void setBarId(Long barId) {
+        this.barId = barId;
+    }
+
+    public CheckJob.Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(CheckJob.Status status) {
+        this.status = status;
+    }
+
+    public int getTotalBars() {
+        return totalBars;
+    }
+
+    public void setTotalBars(int totalBars) {
+        this.totalBars = totalBars;
+    }
+
+    public int getCheckedBars() {
+        return checkedBars;
+    }
+
+    public void setCheckedBars(int checkedBars) {
+        this.checkedBars = checkedBars;
+    }
+
+    public int getFailedBars() {
+        return failedBars;
+    }
+
+    public void setFailedBars(int failedBars) {
+        this.failedBars = failedBars;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public List<BarCheckDTO> getChecks() {
+        return checks;
+    }
+
+    public void setChecks(List<BarCheckDTO> checks) {
+        this.checks = checks;
+    }
+
+    public int getSkippedBars() {
+        return skippedBars;
+    }
+
+    public void setSkippedBars(int skippedBars) {
+        this.skippedBars = skippedBars;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CheckJobDTO that = (CheckJobDTO) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return "CheckJobDTO{" +
+                "id=" + id +
+                ", type=" + type +
+                ", barId=" + barId +
+                ", status=" + status +
+                ", totalBars=" + totalBars +
+                ", checkedBars=" + checkedBars +
+                ", failedBars=" + failedBars +
+                ", createdAt=" + createdAt +
+                ", finishedAt=" + finishedAt +
+                ", skippedBars=" + skippedBars +
+                '}';
+    }
+}
@@ -6,9 +6,12 @@ import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Embedded;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
@@ -20,6 +23,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Objects;
@@ -31,7 +35,7 @@ import java.util.stream.Collectors;
  * Entity representing a bar in the system.
  */
 @Entity
-@Table(name = "bars")
+@Table(name = "bars", indexes = @Index(name = "idx_bars_next_check_at", columnList = "next_check_at"))
 public class Bar {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Bar.class);
@@ -58,9 +62,63 @@ public class Bar {
     @Column(name = "last_menu_hash")
     private String lastMenuHash;
 
+    // Hash of the last menu's canonical form, which is what's compared to detect changes
+    @Column(name = "last_semantic_hash")
+    private String lastSemanticHash;
+
     @Column(name = "last_checked_at")
     private LocalDateTime lastCheckedAt;
 
+    // When the bar is next due to be checked, learned from how often its menu changes. Null means due now
+    @Column(name = "next_check_at")
+    private LocalDateTime nextCheckAt;
+
+    // HTTP validators of the last downloaded menu, sent back as conditional request headers
+    @Column(name = "menu_etag")
+    private String menuEtag;
+
+    @Column(name = "menu_last_modified")
+    private String menuLastModified;
+
+    @Column(name = "menu_content_length")
+    private Long menuContentLength;
+
+    // The menu URL last found on the bar's menu page with its XPath, and the type of menu it served, so the page
+    // isn't fetched on every check
+    @Column(name = "resolved_menu_url", length = 2048)
+    private String resolvedMenuUrl;
+
+    @Column(name = "resolved_menu_type")
+    private String resolvedMenuType;
+
+    @Column(name = "menu_url_resolved_at")
+    private LocalDateTime menuUrlResolvedAt;
+
+    // The local time the bar opens, if known, so checks can be scheduled shortly before it
+    @Column(name = "opens_at")
+    private LocalTime opensAt;
+
+    // How the bar's webpage was last scraped successfully in text mode, learned by trying without a browser first.
+    // Null means it hasn't been learned yet
+    @Enumerated(EnumType.STRING)
+    @Column(name = "scrape_method")
+    private ScrapeMethod scrapeMethod;
+
+    @Column(name = "scrape_method_learned_at")
+    private LocalDateTime scrapeMethodLearnedAt;
+
+    public enum ScrapeMethod {
+        STATIC, // The menu is in the server-rendered HTML
+        BROWSER // The menu is rendered with JavaScript, so it's scraped in a browser
+    }
+
+    // The instance currently checking the bar, so other instances skip it until the lease expires
+    @Column(name = "lease_owner")
+    private String leaseOwner;
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
     @Column(name = "is_approved", nullable = false)
     private boolean isApproved;
 
@@ -158,6 +216,58 @@ public class Bar {
         return lastCheckedAt;
     }
 
+    public LocalDateTime getNextCheckAt() {
+        return nextCheckAt;
+    }
+
+    public String getMenuEtag() {
+        return menuEtag;
+    }
+
+    public String getMenuLastModified() {
+        return menuLastModified;
+    }
+
+    public Long getMenuContentLength() {
+        return menuContentLength;
+    }
+
+    public String getLastSemanticHash() {
+        return lastSemanticHash;
+    }
+
+    public String getResolvedMenuUrl() {
+        return resolvedMenuUrl;
+    }
+
+    public String getResolvedMenuType() {
+        return resolvedMenuType;
+    }
+
+    public LocalDateTime getMenuUrlResolvedAt() {
+        return menuUrlResolvedAt;
+    }
+
+    public LocalTime getOpensAt() {
+        return opensAt;
+    }
+
+    public ScrapeMethod getScrapeMethod() {
+        return scrapeMethod;
+    }
+
+    public LocalDateTime getScrapeMethodLearnedAt() {
+        return scrapeMethodLearnedAt;
+    }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public LocalDateTime getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+
     public boolean isApproved() {
         return isApproved;
     }
@@ -235,6 +345,58 @@ public class Bar {
         this.lastCheckedAt = lastCheckedAt;
     }
 
+    public void setNextCheckAt(LocalDateTime nextCheckAt) {
+        this.nextCheckAt = nextCheckAt;
+    }
+
+    public void setMenuEtag(String menuEtag) {
+        this.menuEtag = menuEtag;
+    }
+
+    public void setMenuLastModified(String menuLastModified) {
+        this.menuLastModified = menuLastModified;
+    }
+
+    public void setMenuContentLength(Long menuContentLength) {
+        this.menuContentLength = menuContentLength;
+    }
+
+    public void setLastSemanticHash(String lastSemanticHash) {
+        this.lastSemanticHash = lastSemanticHash;
+    }
+
+    public void setResolvedMenuUrl(String resolvedMenuUrl) {
+        this.resolvedMenuUrl = resolvedMenuUrl;
+    }
+
+    public void setResolvedMenuType(String resolvedMenuType) {
+        this.resolvedMenuType = resolvedMenuType;
+    }
+
+    public void setMenuUrlResolvedAt(LocalDateTime menuUrlResolvedAt) {
+        this.menuUrlResolvedAt = menuUrlResolvedAt;
+    }
+
+    public void setOpensAt(LocalTime opensAt) {
+        this.opensAt = opensAt;
+    }
+
+    public void setScrapeMethod(ScrapeMethod scrapeMethod) {
+        this.scrapeMethod = scrapeMethod;
+    }
+
+    public void setScrapeMethodLearnedAt(LocalDateTime scrapeMethodLearnedAt) {
+        this.scrapeMethodLearnedAt = scrapeMethodLearnedAt;
+    }
+
+    public void setLeaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+
+    public void setLeaseExpiresAt(LocalDateTime leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
     public void setApproved(boolean approved) {
         isApproved = approved;
     }
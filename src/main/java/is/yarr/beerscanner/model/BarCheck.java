@@ -37,18 +37,32 @@ public class BarCheck {
     @JoinColumn(name = "bar_id", nullable = false)
     private Bar bar;
 
+    // Hash of the raw downloaded menu, kept for auditing
     @Column(name = "menu_hash")
     private String menuHash;
 
+    // Hash of the menu's canonical form, used to detect changes
+    @Column(name = "semantic_hash")
+    private String semanticHash;
+
+    // Only set on checks created before menus were moved to the blob store, and cleared when they're migrated
     @Column(name = "menu_content", columnDefinition = "TEXT")
     private String menuContent;
 
+    // Key of the menu in the blob store, only set if the menu changed
+    @Column(name = "menu_blob_key")
+    private String menuBlobKey;
+
     @Column(name = "content_type")
     private String contentType;
 
     @Column(name = "has_changes", nullable = false)
     private boolean hasChanges;
 
+    // Whether the server answered the conditional request with 304 Not Modified, so nothing was downloaded
+    @Column(name = "not_modified")
+    private Boolean notModified;
+
     @Column(name = "process_duration")
     private int processDuration = 0; // Time it took to collect menu content & determine if changes were made
 
@@ -59,6 +73,18 @@ public class BarCheck {
     @Column(name = "error_message", columnDefinition = "TEXT")
     private String errorMessage;
 
+    // How the menu was sent for extraction, only set if it was extracted
+    @Column(name = "extraction_mode")
+    @Enumerated(EnumType.STRING)
+    private ExtractionMode extractionMode;
+
+    // The instance processing the check, so other instances skip it until the lease expires
+    @Column(name = "lease_owner")
+    private String leaseOwner;
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -87,7 +113,19 @@ public class BarCheck {
         PENDING,
         PROCESSING,
         COMPLETED,
-        FAILED
+        FAILED,
+        HOST_UNAVAILABLE // The menu's host had failed repeatedly, so it wasn't fetched
+    }
+
+    /**
+     * How a menu was sent for extraction.
+     */
+    public enum ExtractionMode {
+        TEXT, // Scraped webpage text
+        PDF_TEXT_LAYER, // The text layer of a PDF, sent as text instead of the file
+        FILE, // The PDF or image file itself
+        DELTA, // Only the changed lines of a text menu, along with the previous beers
+        SHARED // Not extracted, the beers extracted from the same menu for another bar were reused
     }
 
     // Default constructor
@@ -128,10 +166,18 @@ public class BarCheck {
         return menuHash;
     }
 
+    public String getSemanticHash() {
+        return semanticHash;
+    }
+
     public String getMenuContent() {
         return menuContent;
     }
 
+    public String getMenuBlobKey() {
+        return menuBlobKey;
+    }
+
     public String getContentType() {
         return contentType;
     }
@@ -140,6 +186,10 @@ public class BarCheck {
         return hasChanges;
     }
 
+    public boolean isNotModified() {
+        return Boolean.TRUE.equals(notModified);
+    }
+
     public int getProcessDuration() {
         return processDuration;
     }
@@ -152,6 +202,18 @@ public class BarCheck {
         return errorMessage;
     }
 
+    public ExtractionMode getExtractionMode() {
+        return extractionMode;
+    }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public LocalDateTime getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -177,10 +239,18 @@ public class BarCheck {
         this.menuHash = menuHash;
     }
 
+    public void setSemanticHash(String semanticHash) {
+        this.semanticHash = semanticHash;
+    }
+
     public void setMenuContent(String menuContent) {
         this.menuContent = menuContent;
     }
 
+    public void setMenuBlobKey(String menuBlobKey) {
+        this.menuBlobKey = menuBlobKey;
+    }
+
     public void setContentType(String contentType) {
         this.contentType = contentType;
     }
@@ -189,6 +259,10 @@ public class BarCheck {
         this.hasChanges = hasChanges;
     }
 
+    public void setNotModified(boolean notModified) {
+        this.notModified = notModified;
+    }
+
     public void setProcessDuration(int processDuration) {
         this.processDuration = processDuration;
     }
@@ -201,6 +275,18 @@ public class BarCheck {
         this.errorMessage = errorMessage;
     }
 
+    public void setExtractionMode(ExtractionMode extractionMode) {
+        this.extractionMode = extractionMode;
+    }
+
+    public void setLeaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+
+    public void setLeaseExpiresAt(LocalDateTime leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
@@ -234,11 +320,14 @@ public class BarCheck {
                 "id=" + id +
                 ", bar=" + bar +
                 ", menuHash='" + menuHash + '\'' +
-                ", menuContent='" + menuContent + '\'' +
+                ", semanticHash='" + semanticHash + '\'' +
+                ", menuBlobKey='" + menuBlobKey + '\'' +
                 ", contentType='" + contentType + '\'' +
                 ", hasChanges=" + hasChanges +
+                ", notModified=" + notModified +
                 ", processingStatus=" + processingStatus +
                 ", errorMessage='" + errorMessage + '\'' +
+                ", extractionMode=" + extractionMode +
                 ", createdAt=" + createdAt +
                 ", processDuration=" + processDuration +
                 ", beersAdded=" + beersAdded +
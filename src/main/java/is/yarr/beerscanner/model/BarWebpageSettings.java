@@ -2,6 +2,8 @@ package is.yarr.beerscanner.model;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 
 @Embeddable
 public class BarWebpageSettings {
@@ -21,6 +23,30 @@ public class BarWebpageSettings {
     @Column(name = "process_as_text", nullable = false)
     private boolean processAsText = true;
 
+    // How to tell that the webpage's menu has finished loading. Null means the default strategy
+    @Enumerated(EnumType.STRING)
+    @Column(name = "readiness_strategy")
+    private ReadinessStrategy readinessStrategy;
+
+    // How long to wait for the webpage (and its age verification button and menu) to be ready. Null means the default
+    @Column(name = "readiness_timeout_seconds")
+    private Integer readinessTimeoutSeconds;
+
+    // If images, fonts, videos and analytics scripts are blocked while scraping the webpage. Null means the default
+    @Column(name = "block_resources")
+    private Boolean blockResources;
+
+    // URLs (or patterns) of resources the webpage needs, separated by commas or whitespace. Every blocked pattern that
+    // matches one of them isn't blocked for the bar, so other resources those patterns match load too
+    @Column(name = "unblocked_resource_patterns")
+    private String unblockedResourcePatterns;
+
+    public enum ReadinessStrategy {
+        DOM_QUIET, // The page has loaded and its DOM has stopped changing
+        NETWORK_IDLE, // The page has loaded and has stopped loading resources
+        ELEMENT_COUNT_STABLE // The menu component XPath matches elements, and their number and text have stopped changing
+    }
+
     public BarWebpageSettings() {
     }
 
@@ -63,6 +89,38 @@ public class BarWebpageSettings {
         this.processAsText = processAsText;
     }
 
+    public ReadinessStrategy getReadinessStrategy() {
+        return readinessStrategy;
+    }
+
+    public void setReadinessStrategy(ReadinessStrategy readinessStrategy) {
+        this.readinessStrategy = readinessStrategy;
+    }
+
+    public Integer getReadinessTimeoutSeconds() {
+        return readinessTimeoutSeconds;
+    }
+
+    public void setReadinessTimeoutSeconds(Integer readinessTimeoutSeconds) {
+        this.readinessTimeoutSeconds = readinessTimeoutSeconds;
+    }
+
+    public Boolean getBlockResources() {
+        return blockResources;
+    }
+
+    public void setBlockResources(Boolean blockResources) {
+        this.blockResources = blockResources;
+    }
+
+    public String getUnblockedResourcePatterns() {
+        return unblockedResourcePatterns;
+    }
+
+    public void setUnblockedResourcePatterns(String unblockedResourcePatterns) {
+        this.unblockedResourcePatterns = unblockedResourcePatterns;
+    }
+
     public static BarWebpageSettingsBuilder builder() {
         return new BarWebpageSettingsBuilder();
     }
@@ -73,6 +131,10 @@ public class BarWebpageSettings {
                 "menuComponentXPath='" + menuComponentXPath + '\'' +
                 ", ageVerificationXPath='" + ageVerificationXPath + '\'' +
                 ", cleanupScript='" + cleanupScript + '\'' +
+                ", readinessStrategy=" + readinessStrategy +
+                ", readinessTimeoutSeconds=" + readinessTimeoutSeconds +
+                ", blockResources=" + blockResources +
+                ", unblockedResourcePatterns='" + unblockedResourcePatterns + '\'' +
                 '}';
     }
 
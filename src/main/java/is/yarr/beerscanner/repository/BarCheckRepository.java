@@ -6,6 +6,7 @@ import is.yarr.beerscanner.model.Beer;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -28,6 +29,24 @@ public interface BarCheckRepository extends JpaRepository<BarCheck, Long> {
      */
     Optional<BarCheck> findFirstByBarOrderByCreatedAtDesc(Bar bar);
 
+    /**
+     * Find the 20 most recent checks for a specific bar.
+     *
+     * @param bar the bar to find the checks for
+     * @return the most recent checks for the bar, newest first
+     */
+    List<BarCheck> findTop20ByBarOrderByCreatedAtDesc(Bar bar);
+
+    /**
+     * Find the most recent check of a bar before a given check whose menu changed and was extracted.
+     *
+     * @param bar the bar to find the check for
+     * @param id the ID of the check to look before
+     * @param processingStatus the processing status of the check
+     * @return an Optional containing the check if found
+     */
+    Optional<BarCheck> findFirstByBarAndIdLessThanAndHasChangesTrueAndProcessingStatusOrderByIdDesc(Bar bar, Long id, BarCheck.ProcessingStatus processingStatus);
+
     /**
      * Find all checks for a specific bar, ordered by creation time (descending).
      *
@@ -45,6 +64,39 @@ public interface BarCheckRepository extends JpaRepository<BarCheck, Long> {
      */
     List<BarCheck> findByProcessingStatus(BarCheck.ProcessingStatus processingStatus);
 
+    /**
+     * Find the IDs of checks that can be claimed: pending checks, and checks whose processing lease has expired
+     * (because the instance processing them stopped).
+     *
+     * @param now the current time
+     * @return the IDs of the claimable checks, oldest first
+     */
+    @Query("SELECT bc.id FROM BarCheck bc WHERE bc.processingStatus = 'PENDING' OR (bc.processingStatus = 'PROCESSING' AND bc.leaseExpiresAt <= :now) ORDER BY bc.createdAt ASC")
+    List<Long> findClaimableIds(@Param("now") LocalDateTime now);
+
+    /**
+     * Claim a check for processing by leasing it, only if it's pending or its lease has expired.
+     *
+     * @param id the check ID
+     * @param owner the ID of the claiming instance
+     * @param now the current time
+     * @param leaseExpiresAt when the lease expires
+     * @return the number of checks claimed, which is {@code 0} if the check isn't claimable
+     */
+    @Modifying
+    @Query("UPDATE BarCheck bc SET bc.processingStatus = 'PROCESSING', bc.leaseOwner = :owner, bc.leaseExpiresAt = :leaseExpiresAt WHERE bc.id = :id AND (bc.processingStatus = 'PENDING' OR (bc.processingStatus = 'PROCESSING' AND bc.leaseExpiresAt <= :now))")
+    int claim(@Param("id") Long id, @Param("owner") String owner, @Param("now") LocalDateTime now, @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+
+    /**
+     * Return checks that were being processed before leases were recorded to the pending state. Leased checks are
+     * left to expire, since an instance ID isn't guaranteed to survive a restart.
+     *
+     * @return the number of checks returned to pending
+     */
+    @Modifying
+    @Query("UPDATE BarCheck bc SET bc.processingStatus = 'PENDING' WHERE bc.processingStatus = 'PROCESSING' AND bc.leaseOwner IS NULL")
+    int releaseUnleasedProcessing();
+
     /**
      * Find checks that have changes.
      *
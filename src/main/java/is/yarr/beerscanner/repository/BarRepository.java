@@ -5,12 +5,17 @@ import is.yarr.beerscanner.model.Beer;
 import is.yarr.beerscanner.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -61,6 +66,49 @@ public interface BarRepository extends JpaRepository<Bar, Long> {
      */
     List<Bar> findByLastCheckedAtBeforeOrLastCheckedAtIsNull(LocalDateTime checkTime);
 
+    /**
+     * Find approved bars with a menu URL that are due to be checked, the most overdue first.
+     *
+     * @param now the current time
+     * @return a list of bars that are due to be checked
+     */
+    @Query("SELECT b FROM Bar b WHERE b.isApproved = true AND b.menuUrl IS NOT NULL AND (b.nextCheckAt IS NULL OR b.nextCheckAt <= :now) ORDER BY b.nextCheckAt ASC NULLS FIRST")
+    List<Bar> findDueForCheck(@Param("now") LocalDateTime now);
+
+    /**
+     * Find approved bars that have a menu URL.
+     *
+     * @return the bars with a menu
+     */
+    List<Bar> findByIsApprovedTrueAndMenuUrlIsNotNull();
+
+    /**
+     * Find approved bars that are due for a check and not leased by another instance, locking them.
+     * Rows locked by another instance's concurrent claim are skipped ({@code FOR UPDATE SKIP LOCKED}) rather than
+     * waited on, so concurrent claims never return the same bar.
+     *
+     * @param now the current time
+     * @param pageable the number of bars to claim at most
+     * @return the claimable bars, most overdue first
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2")) // -2 is SKIP LOCKED
+    @Query("SELECT b FROM Bar b WHERE b.isApproved = true AND b.menuUrl IS NOT NULL AND (b.nextCheckAt IS NULL OR b.nextCheckAt <= :now) AND (b.leaseExpiresAt IS NULL OR b.leaseExpiresAt <= :now) ORDER BY b.nextCheckAt ASC NULLS FIRST")
+    List<Bar> findClaimableForCheck(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Find the given bars that aren't leased by another instance (or run), whether or not they're due, locking them.
+     * Rows locked by a concurrent claim are skipped, like {@link #findClaimableForCheck(LocalDateTime, Pageable)}.
+     *
+     * @param ids the bar IDs
+     * @param now the current time
+     * @return the claimable bars
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2")) // -2 is SKIP LOCKED
+    @Query("SELECT b FROM Bar b WHERE b.id IN :ids AND (b.leaseExpiresAt IS NULL OR b.leaseExpiresAt <= :now)")
+    List<Bar> findClaimableByIds(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
     /**
      * Find bars that are approved.
      *
@@ -0,0 +1,230 @@
+package is.yarr.beerscanner.scheduler;
+
+import is.yarr.beerscanner.model.Bar;
+import is.yarr.beerscanner.service.fetch.HostGuard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Runs bar checks concurrently on virtual threads.
+ * Concurrency is bounded by a global cap and a per-host cap (so bars sharing a menu host aren't fetched all at once),
+ * and every run is bounded by a deadline after which unfinished checks are interrupted. A run made of several batches
+ * (such as a scheduled run claiming bars a batch at a time) shares one deadline between them.
+ */
+@Component
+public class BarCheckExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BarCheckExecutor.class);
+
+    // How long interrupted checks are given to stop once the deadline has passed
+    private static final Duration INTERRUPT_GRACE_PERIOD = Duration.ofSeconds(30);
+
+    private final int maxPerHost;
+    private final Duration runDeadline;
+
+    private final Semaphore globalPermits;
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    public BarCheckExecutor(@Value("${app.scheduler.bar-check.max-concurrency}") int maxConcurrency,
+                            @Value("${app.scheduler.bar-check.max-per-host}") int maxPerHost,
+                            @Value("${app.scheduler.bar-check.run-deadline}") Duration runDeadline) {
+        this.maxPerHost = maxPerHost;
+        this.runDeadline = runDeadline;
+        this.globalPermits = new Semaphore(maxConcurrency, true);
+    }
+
+    /**
+     * Summary of a single check run.
+     *
+     * @param total         the number of bars submitted
+     * @param succeeded     the number of bars checked successfully
+     * @param failed        the number of bars whose check failed
+     * @param unfinished    the number of bars that didn't finish before the deadline
+     * @param wallTime      how long the whole run took
+     * @param summedBarTime the sum of the individual bar check durations
+     */
+    public record RunReport(int total, int succeeded, int failed, int unfinished, Duration wallTime, Duration summedBarTime) {
+
+        /**
+         * @return how many bar checks were effectively running at once, on average
+         */
+        public double parallelism() {
+            return wallTime.isZero() ? 0 : (double) summedBarTime.toMillis() / Math.max(1, wallTime.toMillis());
+        }
+    }
+
+    /**
+     * Get the deadline of a run starting now.
+     *
+     * @return the deadline
+     */
+    public Instant deadlineFromNow() {
+        return Instant.now().plus(runDeadline);
+    }
+
+    /**
+     * Check all given bars concurrently, blocking until they are done or the run deadline passes.
+     *
+     * @param bars  the bars to check
+     * @param check the check to run for each bar, returning if it succeeded
+     * @return a report of the run
+     */
+    public RunReport runAll(List<Bar> bars, Predicate<Bar> check) {
+        return runAll(bars, check, false);
+    }
+
+    /**
+     * Check all given bars concurrently, blocking until they are done or the run deadline passes.
+     * Priority runs (admin-triggered checks) don't wait for a global permit, but still respect the per-host cap.
+     *
+     * @param bars     the bars to check
+     * @param check    the check to run for each bar, returning if it succeeded
+     * @param priority if the checks should bypass the global cap
+     * @return a report of the run
+     */
+    public RunReport runAll(List<Bar> bars, Predicate<Bar> check, boolean priority) {
+        return runAll(bars, check, priority, deadlineFromNow());
+    }
+
+    /**
+     * Check all given bars concurrently, blocking until they are done or the given deadline passes. Checks still
+     * running at the deadline are interrupted, and given a short grace period to stop before this returns.
+     *
+     * @param bars     the bars to check
+     * @param check    the check to run for each bar, returning if it succeeded
+     * @param priority if the checks should bypass the global cap
+     * @param deadline when unfinished checks are interrupted, shared by every batch of a run
+     * @return a report of the run
+     */
+    public RunReport runAll(List<Bar> bars, Predicate<Bar> check, boolean priority, Instant deadline) {
+        long startTime = System.nanoTime();
+
+        var succeeded = new AtomicInteger();
+        var failed = new AtomicInteger();
+        var summedNanos = new AtomicLong();
+
+        int succeededCount;
+        int failedCount;
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            for (Bar bar : bars) {
+                executor.submit(() -> {
+                    long barNanos = runGuarded(bar, check, priority, succeeded, failed);
+                    summedNanos.addAndGet(barNanos);
+                });
+            }
+
+            executor.shutdown();
+            var remaining = Duration.between(Instant.now(), deadline);
+            boolean finished = executor.awaitTermination(Math.max(0, remaining.toNanos()), TimeUnit.NANOSECONDS);
+
+            // Counted before interrupting, so checks that fail because they were interrupted count as unfinished
+            succeededCount = succeeded.get();
+            failedCount = failed.get();
+
+            if (!finished) {
+                LOGGER.warn("Bar check run exceeded its deadline, interrupting unfinished checks");
+                interrupt(executor);
+            }
+        } catch (InterruptedException e) {
+            succeededCount = succeeded.get();
+            failedCount = failed.get();
+            interrupt(executor);
+            Thread.currentThread().interrupt();
+        }
+
+        int unfinished = bars.size() - succeededCount - failedCount;
+        var report = new RunReport(bars.size(), succeededCount, failedCount, unfinished,
+                Duration.ofNanos(System.nanoTime() - startTime), Duration.ofNanos(summedNanos.get()));
+
+        LOGGER.info("Checked {} bars ({} succeeded, {} failed, {} unfinished) in {} ms wall time, {} ms summed bar time ({}x parallelism)",
+                report.total(), report.succeeded(), report.failed(), report.unfinished(),
+                report.wallTime().toMillis(), report.summedBarTime().toMillis(), "%.1f".formatted(report.parallelism()));
+
+        return report;
+    }
+
+    /**
+     * Interrupt a run's unfinished checks, and wait for them to stop so their bars aren't checked again while they're
+     * still running.
+     */
+    private static void interrupt(ExecutorService executor) {
+        executor.shutdownNow();
+
+        try {
+            if (!executor.awaitTermination(INTERRUPT_GRACE_PERIOD.toNanos(), TimeUnit.NANOSECONDS)) {
+                LOGGER.warn("Interrupted bar checks didn't stop within {}", INTERRUPT_GRACE_PERIOD);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Run a single bar check once both its host permit and (unless it's a priority check) a global permit are available.
+     *
+     * @return the time spent running the check itself, in nanoseconds (excluding time spent waiting for permits)
+     */
+    private long runGuarded(Bar bar, Predicate<Bar> check, boolean priority, AtomicInteger succeeded, AtomicInteger failed) {
+        var hostPermit = hostPermits.computeIfAbsent(hostOf(bar), host -> new Semaphore(maxPerHost, true));
+
+        try {
+            hostPermit.acquire();
+            try {
+                if (!priority) {
+                    globalPermits.acquire();
+                }
+
+                long startTime = System.nanoTime();
+                try {
+                    if (check.test(bar)) {
+                        succeeded.incrementAndGet();
+                    } else {
+                        failed.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    LOGGER.error("Error checking bar {}: {}", bar.getName(), e.getMessage(), e);
+                    failed.incrementAndGet();
+                } finally {
+                    if (!priority) {
+                        globalPermits.release();
+                    }
+                }
+
+                return System.nanoTime() - startTime;
+            } finally {
+                hostPermit.release();
+            }
+        } catch (InterruptedException e) {
+            LOGGER.warn("Check for bar {} was interrupted before it started", bar.getName());
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    /**
+     * Get the host a bar's menu is fetched from, used as the key for the per-host cap.
+     *
+     * @param bar the bar
+     * @return the lowercase host of the bar's menu URL, or {@code "unknown"} if it has none
+     */
+    static String hostOf(Bar bar) {
+        return HostGuard.hostOf(bar.getMenuUrl());
+    }
+}
@@ -6,28 +6,35 @@ import is.yarr.beerscanner.service.BarCheckService;
 import is.yarr.beerscanner.service.BarService;
 import is.yarr.beerscanner.service.BarWebpageScraperService;
 import is.yarr.beerscanner.service.NotificationService;
-import org.imgscalr.Scalr;
+import is.yarr.beerscanner.service.fetch.FetchResponse;
+import is.yarr.beerscanner.service.fetch.HostGuard;
+import is.yarr.beerscanner.service.fetch.HostUnavailableException;
+import is.yarr.beerscanner.service.fetch.HttpFetchClient;
+import is.yarr.beerscanner.service.menu.ImageMenuProcessor;
+import is.yarr.beerscanner.service.menu.MenuDigest;
+import is.yarr.beerscanner.service.menu.MenuType;
+import is.yarr.beerscanner.service.menu.PdfMenuProcessor;
+import is.yarr.beerscanner.service.menu.SemanticHashService;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.net.HttpURLConnection;
-import java.net.URI;
-import java.net.URISyntaxException;
-import java.net.URL;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -43,12 +50,32 @@ public class BarCheckScheduler {
     private final BarCheckService barCheckService;
     private final NotificationService notificationService;
     private final BarWebpageScraperService barWebpageScraperService;
-
-    public BarCheckScheduler(BarService barService, BarCheckService barCheckService, NotificationService notificationService, BarWebpageScraperService barWebpageScraperService) {
+    private final BarCheckExecutor barCheckExecutor;
+    private final HttpFetchClient httpFetchClient;
+    private final HostGuard hostGuard;
+    private final CheckExtractionPipeline checkExtractionPipeline;
+    private final SemanticHashService semanticHashService;
+    private final PdfMenuProcessor pdfMenuProcessor;
+    private final ImageMenuProcessor imageMenuProcessor;
+    private final Duration extractionDrainTimeout;
+    private final Duration resolvedMenuUrlTtl;
+
+    public BarCheckScheduler(BarService barService, BarCheckService barCheckService, NotificationService notificationService, BarWebpageScraperService barWebpageScraperService, BarCheckExecutor barCheckExecutor, HttpFetchClient httpFetchClient, HostGuard hostGuard, CheckExtractionPipeline checkExtractionPipeline, SemanticHashService semanticHashService, PdfMenuProcessor pdfMenuProcessor, ImageMenuProcessor imageMenuProcessor,
+                             @Value("${app.scheduler.extraction.drain-timeout}") Duration extractionDrainTimeout,
+                             @Value("${app.menu.resolved-url-ttl}") Duration resolvedMenuUrlTtl) {
         this.barService = barService;
         this.barCheckService = barCheckService;
         this.notificationService = notificationService;
         this.barWebpageScraperService = barWebpageScraperService;
+        this.barCheckExecutor = barCheckExecutor;
+        this.httpFetchClient = httpFetchClient;
+        this.hostGuard = hostGuard;
+        this.checkExtractionPipeline = checkExtractionPipeline;
+        this.semanticHashService = semanticHashService;
+        this.pdfMenuProcessor = pdfMenuProcessor;
+        this.imageMenuProcessor = imageMenuProcessor;
+        this.extractionDrainTimeout = extractionDrainTimeout;
+        this.resolvedMenuUrlTtl = resolvedMenuUrlTtl;
     }
 
     /**
@@ -58,19 +85,38 @@ public class BarCheckScheduler {
     public void checkAllBars() {
         LOGGER.info("Starting scheduled bar check");
 
-        List<Bar> barsToCheck = barService.getBarsToCheck();
-        LOGGER.info("Found {} bars to check", barsToCheck.size());
+        // Pick up checks left pending by earlier runs
+        submitPendingChecks();
+
+        // Fetch bars concurrently, bounded by the global and per-host caps, while the extraction workers process the
+        // checks as they're created. Bars are claimed a batch at a time, so other instances running at the same time
+        // get their share of them, and every batch shares the run's deadline. Bars sharing a menu source share a
+        // single fetch
+        var deadline = barCheckExecutor.deadlineFromNow();
+        var sharedFetches = new SharedMenuFetches();
+        int checkedBars = 0;
+        List<Bar> barsToCheck;
+        while (Instant.now().isBefore(deadline) && !(barsToCheck = barService.claimBarsToCheck(deadline)).isEmpty()) {
+            LOGGER.info("Claimed {} bars to check", barsToCheck.size());
+            barCheckExecutor.runAll(barsToCheck, bar -> fetchAndSubmit(bar, sharedFetches), false, deadline);
+            checkedBars += barsToCheck.size();
+        }
 
-        for (Bar bar : barsToCheck) {
-            try {
-                checkBar(bar);
-            } catch (Exception e) {
-                LOGGER.error("Error checking bar {}: {}", bar.getName(), e.getMessage(), e);
-            }
+        if (!Instant.now().isBefore(deadline)) {
+            LOGGER.warn("Bar check run reached its deadline, the remaining bars will be checked by the next run");
         }
 
-        // Process any pending checks
-        processPendingChecks();
+        LOGGER.info("Checked {} bars", checkedBars);
+
+        // Wait for extraction to catch up, so the notifications include this run's changes
+        try {
+            if (!checkExtractionPipeline.awaitIdle(extractionDrainTimeout)) {
+                LOGGER.warn("Extraction didn't finish within {}, remaining checks will be processed in the background", extractionDrainTimeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
 
         // Process any unsent notifications
         notificationService.processUnsentNotifications();
@@ -88,49 +134,180 @@ public class BarCheckScheduler {
     }
 
     /**
-     * Check a bar.
+     * Check a bar, processing the check inline rather than through the extraction workers.
      *
      * @param bar    The bar to check
      * @param forced Weather to ignore the menu hash (`true`) or not (`false`).
+     * @return the processed check, or an empty optional if the menu couldn't be fetched
      */
     public Optional<BarCheck> checkBar(Bar bar, boolean forced) {
+        return fetchBar(bar, forced).map(check -> {
+            if (check.getProcessingStatus() == BarCheck.ProcessingStatus.PENDING && barCheckService.claimCheck(check.getId())) {
+                return barCheckService.processCheck(check.getId());
+            }
+
+            return check;
+        });
+    }
+
+    /**
+     * Fetch a bar's menu and submit the resulting check to the extraction workers.
+     *
+     * @param bar the bar to check
+     * @param sharedFetches the menus fetched in this run
+     * @return if the menu was fetched
+     */
+    private boolean fetchAndSubmit(Bar bar, SharedMenuFetches sharedFetches) {
+        var check = fetchBar(bar, false, sharedFetches);
+        if (check.isEmpty()) {
+            return false;
+        }
+
+        if (check.get().getProcessingStatus() == BarCheck.ProcessingStatus.PENDING) {
+            try {
+                checkExtractionPipeline.submit(check.get().getId());
+            } catch (InterruptedException e) {
+                // The check stays pending, and is picked up on the next run
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Fetch a bar's menu and create a pending check for it, without processing the check.
+     *
+     * @param bar    The bar to check
+     * @param forced Weather to ignore the menu hash (`true`) or not (`false`).
+     * @return the created check, or an empty optional if the menu couldn't be fetched
+     */
+    Optional<BarCheck> fetchBar(Bar bar, boolean forced) {
+        return fetchBar(bar, forced, null);
+    }
+
+    /**
+     * Fetch a bar's menu and create a pending check for it, without processing the check.
+     *
+     * @param bar           The bar to check
+     * @param forced        Weather to ignore the menu hash (`true`) or not (`false`).
+     * @param sharedFetches the menus fetched in the current run, shared between bars with the same menu source, or
+     *                      null to always fetch the bar's menu
+     * @return the created check, or an empty optional if the menu couldn't be fetched
+     */
+    Optional<BarCheck> fetchBar(Bar bar, boolean forced, SharedMenuFetches sharedFetches) {
         LOGGER.info("Checking bar: {}", bar.getName());
 
+        long startTime = System.currentTimeMillis();
         try {
-            long startTime = System.currentTimeMillis();
 
             // Get menu content
-            var menuContent = getMenuContent(bar);
+            var menuContent = sharedFetches == null
+                    ? getMenuContent(bar, forced)
+                    : sharedFetches.fetch(bar, sharedBar -> getMenuContent(sharedBar, forced));
 
-            // Calculate hash
-            var menuHash = calculateHash(menuContent.content);
+            if (menuContent.notModified()) {
+                // Nothing was downloaded, so there's nothing to hash or extract
+                LOGGER.info("Menu for bar {} was not modified", bar.getName());
+                long duration = System.currentTimeMillis() - startTime;
 
-            long duration = System.currentTimeMillis() - startTime;
+                return Optional.of(barCheckService.createNotModifiedCheck(bar, menuContent.contentType, (int) duration));
+            }
 
-            // Create check
-            BarCheck check = barCheckService.createCheck(bar, forced, menuContent.content, menuContent.contentType, menuHash, (int) duration);
+            // Remember the validators for the next conditional request
+            var validators = menuContent.validators;
+            bar.setMenuEtag(validators.etag());
+            bar.setMenuLastModified(validators.lastModified());
+            bar.setMenuContentLength(validators.contentLength());
 
-            // Process check (this will handle if no changes were detected)
-            barCheckService.processCheck(check.getId());
+            // Changes are detected by the hash of the menu's canonical form, ignoring cosmetic changes
+            var semanticHash = semanticHashService.semanticHash(menuContent.content, menuContent.contentType, menuContent.hash);
 
-            return Optional.of(check);
+            long duration = System.currentTimeMillis() - startTime;
+
+            // Create check, which is processed later (this will handle if no changes were detected)
+            return Optional.of(barCheckService.createCheck(bar, forced, menuContent.content, menuContent.contentType, menuContent.hash, semanticHash, (int) duration));
+        } catch (HostUnavailableException e) {
+            // Fail fast without waiting out timeouts, and leave a record of why the bar wasn't checked
+            LOGGER.warn("Skipping bar {}: {}", bar.getName(), e.getMessage());
+            long duration = System.currentTimeMillis() - startTime;
+            return Optional.of(barCheckService.createHostUnavailableCheck(bar, e.getMessage(), (int) duration));
         } catch (Exception e) {
             LOGGER.error("Error checking bar {}: {}", bar.getName(), e.getMessage(), e);
+            barCheckService.deferFailedCheck(bar);
         }
 
         return Optional.empty();
     }
 
-    public record MenuContent(String content, String contentType) {}
+    /**
+     * HTTP validators of a downloaded menu, used to make conditional requests on the next check.
+     *
+     * @param etag          the {@code ETag} header, if any
+     * @param lastModified  the {@code Last-Modified} header, if any
+     * @param contentLength the {@code Content-Length} header, if any
+     */
+    public record MenuValidators(String etag, String lastModified, Long contentLength) {
+        static final MenuValidators NONE = new MenuValidators(null, null, null);
+
+        static MenuValidators of(Bar bar) {
+            return new MenuValidators(bar.getMenuEtag(), bar.getMenuLastModified(), bar.getMenuContentLength());
+        }
+
+        boolean isEmpty() {
+            return etag == null && lastModified == null;
+        }
+    }
+
+    /**
+     * A downloaded menu.
+     *
+     * @param content     the raw menu bytes (a PDF, a PNG image or UTF-8 text), which are only encoded if the menu changed
+     * @param hash        the hash of the downloaded bytes, computed while they were read
+     * @param contentType the content type of {@code content}
+     * @param validators  the HTTP validators of the download
+     * @param notModified if the server reported the menu as not modified, so nothing was downloaded
+     */
+    public record MenuContent(byte[] content, String hash, String contentType, MenuValidators validators, boolean notModified) {
+        static MenuContent of(byte[] content, String hash, String contentType, MenuValidators validators) {
+            return new MenuContent(content, hash, contentType, validators, false);
+        }
+
+        static MenuContent notModified(String contentType) {
+            return new MenuContent(null, null, contentType, null, true);
+        }
+    }
 
     /**
      * Get menu content.
      *
      * @param bar the bar
+     * @param forced if the menu should be downloaded even if the server reports it as not modified
      * @return the menu content
      * @throws IOException if an I/O error occurs
      */
-    private MenuContent getMenuContent(Bar bar) throws IOException, URISyntaxException {
+    private MenuContent getMenuContent(Bar bar, boolean forced) throws IOException {
+        var menuContent = getMenuContent(bar, forced, true);
+        if (menuContent.isPresent()) {
+            return menuContent.get();
+        }
+
+        // The cached menu URL no longer serves the menu, and its response has been closed, so the menu URL is found on
+        // the menu page again. That never uses the cached URL, so it's only tried once
+        return getMenuContent(bar, forced, false)
+                .orElseThrow(() -> new IllegalStateException("Menu URL found on the menu page was treated as cached"));
+    }
+
+    /**
+     * Get menu content, using a bar's cached menu URL if it's allowed and fresh.
+     *
+     * @param bar the bar
+     * @param forced if the menu should be downloaded even if the server reports it as not modified
+     * @param useCachedMenuUrl if the menu URL last found with the bar's XPath can be used without fetching the menu page
+     * @return the menu content, or an empty optional if the cached menu URL no longer serves the menu
+     * @throws IOException if an I/O error occurs
+     */
+    private Optional<MenuContent> getMenuContent(Bar bar, boolean forced, boolean useCachedMenuUrl) throws IOException {
         if (bar.getMenuUrl() == null) {
             throw new IllegalArgumentException("Bar has no menu URL");
         }
@@ -138,57 +315,146 @@ public class BarCheckScheduler {
         String finalMenuUrl = bar.getMenuUrl();
 
         var webScraping = true;
+        var cachedMenuUrl = false;
 
         // If XPath is provided, navigate to the page and extract the actual menu URL
         // If provided, this means this exact XPath is the menu, and web scraping does NOT need to happen
         if (bar.getMenuXPath() != null && !bar.getMenuXPath().isEmpty()) {
-            LOGGER.info("Using XPath to extract menu URL from {}", finalMenuUrl);
-            finalMenuUrl = extractMenuUrlUsingXPath(finalMenuUrl, bar.getMenuXPath());
-            LOGGER.info("Extracted menu URL: {}", finalMenuUrl);
+            if (useCachedMenuUrl && isResolvedMenuUrlFresh(bar)) {
+                // The menu page is only fetched again if the resolved URL stops serving the menu, or the TTL passes
+                finalMenuUrl = bar.getResolvedMenuUrl();
+                cachedMenuUrl = true;
+                LOGGER.info("Using cached menu URL: {}", finalMenuUrl);
+            } else {
+                LOGGER.info("Using XPath to extract menu URL from {}", finalMenuUrl);
+                finalMenuUrl = extractMenuUrlUsingXPath(finalMenuUrl, bar.getMenuXPath());
+                LOGGER.info("Extracted menu URL: {}", finalMenuUrl);
+
+                if (bar.getResolvedMenuUrl() != null && !bar.getResolvedMenuUrl().equals(finalMenuUrl)) {
+                    // The stored validators are for the old URL
+                    bar.setMenuEtag(null);
+                    bar.setMenuLastModified(null);
+                    bar.setMenuContentLength(null);
+                    bar.setResolvedMenuType(null);
+                }
+
+                bar.setResolvedMenuUrl(finalMenuUrl);
+                bar.setMenuUrlResolvedAt(LocalDateTime.now());
+            }
 
             webScraping = false;
         }
 
-        // Determine content type
-        HeadResponse headResponse = sendHeadRequest(finalMenuUrl);
-        LOGGER.info("Content type for {}: {}", finalMenuUrl, headResponse.contentType);
-        LOGGER.info("Etag for {}: {}", finalMenuUrl, headResponse.etag);
-        // TODO: Handle etag
-
-        String base64;
-        String contentType = headResponse.contentType;
-        if (headResponse.contentType.contains("application/pdf")) {
-            // Handle PDF
-            LOGGER.info("Processing PDF menu from {}", finalMenuUrl);
-            base64 = processPdfMenu(finalMenuUrl);
-        } else if (headResponse.contentType.contains("image/")) {
-            // Handle image
-            LOGGER.info("Processing image menu from {}", finalMenuUrl);
-            base64 = processImageMenu(finalMenuUrl);
-        } else if (headResponse.contentType.contains("text/html")) {
-            if (!webScraping) {
-                throw new RuntimeException("Web scraping required for text/html content type, but XPath was provided.");
+        // Only send the stored validators if there's a previous menu to compare against, and for a resolved menu URL,
+        // once its menu type is known, as a not modified response has no body to find the type from
+        var storedValidators = MenuValidators.of(bar);
+        var conditional = !forced && bar.getLastMenuHash() != null && !storedValidators.isEmpty()
+                && (webScraping || bar.getResolvedMenuType() != null);
+
+        // A single GET, whose headers and first bytes decide how the body is processed
+        try (var fetchResponse = sendGetRequest(finalMenuUrl, conditional ? storedValidators : MenuValidators.NONE)) {
+            var response = MenuResponse.of(fetchResponse);
+            LOGGER.info("Content type for {}: {}", finalMenuUrl, response.contentType);
+            LOGGER.info("Etag for {}: {}", finalMenuUrl, response.validators.etag());
+
+            if (conditional && response.isNotModifiedSince(storedValidators)) {
+                // A 304 response usually has no content type, and the body (if any) is never read
+                return Optional.of(MenuContent.notModified(response.contentType.isEmpty() ? null : response.contentType));
             }
 
-            if (!bar.getWebpageSettings().isProcessAsText()) {
-                // If the bar has a webpage settings that does not process as text, we need to scrape the webpage
-                LOGGER.info("Processing bar webpage for {}", finalMenuUrl);
-                contentType = "image/png";
-                throw new RuntimeException("Extracted image processing not implemented yet, please implement the barWebpageScraperService.processBarWebpage method.");
-//                base64 = barWebpageScraperService.processBarWebpage(bar);
-            } else {
-                LOGGER.info("Fetching text menu from {}", finalMenuUrl);
-                contentType = "text/plain";
-                base64 = barWebpageScraperService.processTextualBarWebpage(bar).orElseThrow(() -> new RuntimeException("Failed to process textual bar webpage"));
+            if (cachedMenuUrl && (response.status == HttpURLConnection.HTTP_NOT_FOUND || response.status == HttpURLConnection.HTTP_GONE)) {
+                LOGGER.info("Cached menu URL {} is gone, finding the menu URL again", finalMenuUrl);
+                return Optional.empty();
+            }
 
-                System.out.println("base64 = " + base64);
-                System.out.println("contentType = " + contentType);
+            if (response.status >= 400) {
+                throw new IOException("Menu request to %s failed with status %d".formatted(finalMenuUrl, response.status));
             }
-        } else {
-            throw new RuntimeException("Unsupported content type: " + headResponse.contentType);
+
+            var body = new BufferedInputStream(fetchResponse.body());
+            var menuType = MenuType.sniff(response.contentType, body);
+            LOGGER.info("Detected {} menu at {}", menuType, finalMenuUrl);
+
+            if (!webScraping) {
+                if (cachedMenuUrl && !menuType.name().equals(bar.getResolvedMenuType())) {
+                    LOGGER.info("Cached menu URL {} changed from {} to {}, finding the menu URL again", finalMenuUrl, bar.getResolvedMenuType(), menuType);
+                    return Optional.empty();
+                }
+
+                bar.setResolvedMenuType(menuType.name());
+            }
+
+            switch (menuType) {
+                case PDF -> {
+                    LOGGER.info("Processing PDF menu from {}", finalMenuUrl);
+                    var digestingBody = MenuDigest.digesting(body);
+                    var pdf = pdfMenuProcessor.process(digestingBody, response.validators.contentLength());
+                    return Optional.of(MenuContent.of(pdf, MenuDigest.finish(digestingBody), "application/pdf", response.validators));
+                }
+                case IMAGE -> {
+                    // Hash the downloaded image rather than the resized one, which could differ between library versions
+                    LOGGER.info("Processing image menu from {}", finalMenuUrl);
+                    var digestingBody = MenuDigest.digesting(body);
+                    var image = imageMenuProcessor.process(digestingBody);
+                    return Optional.of(MenuContent.of(image, MenuDigest.finish(digestingBody), ImageMenuProcessor.CONTENT_TYPE, response.validators));
+                }
+                case HTML -> {
+                    if (!webScraping) {
+                        throw new RuntimeException("Web scraping required for text/html content type, but XPath was provided.");
+                    }
+
+                    // Server-rendered menus are scraped from the page that was just downloaded, without a browser
+                    if (barWebpageScraperService.shouldScrapeStatically(bar)) {
+                        var text = barWebpageScraperService.processStaticBarWebpage(bar, body, fetchResponse.uri().toString());
+                        if (text.isPresent()) {
+                            LOGGER.info("Scraped text menu from the HTML of {}", finalMenuUrl);
+                            return Optional.of(textMenuContent(text.get()));
+                        }
+                    }
+                }
+                default -> throw new RuntimeException("Unsupported content type: " + response.contentType);
+            }
+        }
+
+        // The page itself is loaded by the browser, so the response is closed without reading the rest of its body
+        return Optional.of(scrapeMenu(bar, finalMenuUrl));
+    }
+
+    /**
+     * Check if the menu URL found with a bar's XPath can be reused without fetching the menu page again.
+     *
+     * @param bar the bar
+     * @return if the resolved menu URL is known and younger than the TTL
+     */
+    private boolean isResolvedMenuUrlFresh(Bar bar) {
+        return bar.getResolvedMenuUrl() != null && bar.getResolvedMenuType() != null && bar.getMenuUrlResolvedAt() != null
+                && bar.getMenuUrlResolvedAt().plus(resolvedMenuUrlTtl).isAfter(LocalDateTime.now());
+    }
+
+    /**
+     * Scrape a menu from a bar's webpage.
+     *
+     * @param bar the bar
+     * @param menuUrl the webpage URL
+     * @return the menu content
+     */
+    private MenuContent scrapeMenu(Bar bar, String menuUrl) {
+        if (!bar.getWebpageSettings().isProcessAsText()) {
+            // If the bar has a webpage settings that does not process as text, we need to scrape the webpage
+            LOGGER.info("Processing bar webpage for {}", menuUrl);
+            throw new RuntimeException("Processing bar webpages as images isn't implemented yet");
         }
 
-        return new MenuContent(base64, contentType);
+        LOGGER.info("Fetching text menu from {}", menuUrl);
+        var text = barWebpageScraperService.processTextualBarWebpage(bar).orElseThrow(() -> new RuntimeException("Failed to process textual bar webpage"));
+
+        return textMenuContent(text);
+    }
+
+    private static MenuContent textMenuContent(String text) {
+        // Validators of a scraped webpage don't describe the menu within it
+        var content = text.getBytes(StandardCharsets.UTF_8);
+        return MenuContent.of(content, MenuDigest.of(content), "text/plain", MenuValidators.NONE);
     }
 
     /**
@@ -200,7 +466,16 @@ public class BarCheckScheduler {
      * @throws IOException if an I/O error occurs
      */
     private String extractMenuUrlUsingXPath(String pageUrl, String xpath) throws IOException {
-        Document doc = Jsoup.connect(pageUrl).get();
+        Document doc;
+        try (var response = fetch(pageUrl, Map.of())) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Menu page request to %s failed with status %d".formatted(pageUrl, response.status()));
+            }
+
+            // Parse with the final URL as the base, so relative links resolve against where any redirects ended up
+            doc = Jsoup.parse(response.body(), null, response.uri().toString());
+        }
+
         Elements elements = doc.selectXpath(xpath);
 
         if (elements.isEmpty()) {
@@ -210,143 +485,115 @@ public class BarCheckScheduler {
         Element element = elements.first();
         String href = element.attr("href");
 
-        System.out.println("Raw href: " + href);
+        LOGGER.debug("Raw href: {}", href);
 
         // Handle relative URLs
-        if (href.startsWith("//")) {
-            URL url = URI.create(pageUrl).toURL();
-            href = url.getProtocol() + ":" + href;
-        } else if (href.startsWith("/")) {
-            URL url = URI.create(pageUrl).toURL();
-            href = url.getProtocol() + "://" + url.getHost() + href;
-        }
-
-        return href;
+        var absoluteHref = element.absUrl("href");
+        return absoluteHref.isEmpty() ? href : absoluteHref;
     }
 
-    record HeadResponse(String contentType, String etag) {
-        public static HeadResponse of(String contentType, String etag) {
-            return new HeadResponse(Objects.requireNonNull(contentType, "text/html"), Objects.requireNonNull(etag, ""));
+    record MenuResponse(int status, String contentType, MenuValidators validators) {
+
+        static MenuResponse of(FetchResponse response) {
+            var contentLength = response.contentLength();
+            var validators = new MenuValidators(response.header("ETag").orElse(null), response.header("Last-Modified").orElse(null),
+                    contentLength >= 0 ? contentLength : null);
+
+            return new MenuResponse(response.status(), response.contentType(), validators);
         }
-    }
 
-    /**
-     * Determine content type of a URL.
-     *
-     * @param url the URL
-     * @return the content type
-     * @throws IOException if an I/O error occurs
-     */
-    private HeadResponse sendHeadRequest(String url) throws IOException, URISyntaxException {
-        HttpURLConnection connection = (HttpURLConnection) new URI(url).toURL().openConnection();
-        connection.setRequestMethod("HEAD");
-        connection.connect();
-        var contentType = connection.getContentType();
-        var etag = connection.getHeaderField("Etag");
-        connection.disconnect();
-
-        return new HeadResponse(contentType, etag);
-    }
+        /**
+         * Check if the server reported the menu as unchanged, either with a 304 response or by returning the same
+         * validators as the stored ones (for servers that ignore conditional headers).
+         *
+         * @param storedValidators the validators of the last downloaded menu
+         * @return if the menu is unchanged
+         */
+        boolean isNotModifiedSince(MenuValidators storedValidators) {
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return true;
+            }
 
-    /**
-     * Process a PDF menu.
-     *
-     * @param pdfUrl the PDF URL
-     * @return the processed menu content as a base64 image
-     * @throws IOException if an I/O error occurs
-     */
-    private String processPdfMenu(String pdfUrl) throws IOException, URISyntaxException {
-        // TODO: Check if pdf size is under certain file size
+            if (status != HttpURLConnection.HTTP_OK) {
+                return false;
+            }
+
+            if (validators.etag() != null) {
+                return validators.etag().equals(storedValidators.etag());
+            }
 
-        try (var inputStream = new URI(pdfUrl).toURL().openStream()) {
-            byte[] pdfBytes = inputStream.readAllBytes();
-            return Base64.getEncoder().encodeToString(pdfBytes);
+            return validators.lastModified() != null
+                    && validators.lastModified().equals(storedValidators.lastModified())
+                    && Objects.equals(validators.contentLength(), storedValidators.contentLength());
         }
     }
 
     /**
-     * Process an image menu.
+     * Send a (possibly conditional) GET request for a menu. The body is left unread.
      *
-     * @param imageUrl the image URL
-     * @return the processed menu content as a base64 image
+     * @param url the URL
+     * @param validators the validators to send as {@code If-None-Match} / {@code If-Modified-Since}, if any
+     * @return the response, which the caller must close
      * @throws IOException if an I/O error occurs
      */
-    private String processImageMenu(String imageUrl) throws IOException {
-        var originalImage = ImageIO.read(URI.create(imageUrl).toURL());
-        var resizedImage = resizeImage(originalImage, 1000);
+    private FetchResponse sendGetRequest(String url, MenuValidators validators) throws IOException {
+        var headers = new HashMap<String, String>();
 
-        LOGGER.info("Converting image to base64 for OpenAI analysis");
-        return imageToBase64(resizedImage);
-    }
-
-    /**
-     * Resize an image to a maximum dimension.
-     *
-     * @param originalImage the original image
-     * @param maxDimension the maximum dimension
-     * @return the resized image
-     */
-    public static BufferedImage resizeImage(BufferedImage originalImage, int maxDimension) {
-        int width = originalImage.getWidth();
-        int height = originalImage.getHeight();
-
-        if (width <= maxDimension && height <= maxDimension) {
-            return originalImage;
+        if (validators.etag() != null) {
+            headers.put("If-None-Match", validators.etag());
         }
 
-        if (width > height) {
-            return Scalr.resize(originalImage, Scalr.Method.QUALITY, Scalr.Mode.FIT_TO_WIDTH, maxDimension, maxDimension);
-        } else {
-            return Scalr.resize(originalImage, Scalr.Method.QUALITY, Scalr.Mode.FIT_TO_HEIGHT, maxDimension, maxDimension);
+        if (validators.lastModified() != null) {
+            headers.put("If-Modified-Since", validators.lastModified());
         }
+
+        return fetch(url, headers);
     }
 
     /**
-     * Convert an image to base64.
+     * Send a GET request through the per-host rate limiter and circuit breaker.
+     * Connection errors, timeouts and server errors count as failures of the host, while client errors don't.
      *
-     * @param image the image
-     * @return the base64 string
+     * @param url the URL
+     * @param headers additional request headers
+     * @return the response, which the caller must close
+     * @throws HostUnavailableException if the host's circuit is open
      * @throws IOException if an I/O error occurs
      */
-    public static String imageToBase64(BufferedImage image) throws IOException {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        ImageIO.write(image, "png", outputStream);
-        byte[] imageBytes = outputStream.toByteArray();
-        return Base64.getEncoder().encodeToString(imageBytes);
-    }
+    private FetchResponse fetch(String url, Map<String, String> headers) throws IOException {
+        var host = HostGuard.hostOf(url);
+        hostGuard.acquire(host);
 
-    /**
-     * Calculate hash for menu content.
-     *
-     * @param content the content
-     * @return the hash
-     */
-    private String calculateHash(String content) {
-        if (content == null) {
-            return "";
+        FetchResponse response;
+        try {
+            response = httpFetchClient.get(url, headers);
+        } catch (IOException e) {
+            hostGuard.recordFailure(host);
+            throw e;
         }
 
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(content.getBytes());
-            return Base64.getEncoder().encodeToString(hash);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Error calculating hash", e);
+        if (response.status() >= 500) {
+            hostGuard.recordFailure(host);
+        } else {
+            hostGuard.recordSuccess(host);
         }
+
+        return response;
     }
 
     /**
-     * Process pending checks.
+     * Submit checks that are still pending (or were abandoned by a stopped instance) to the extraction workers.
      */
-    private void processPendingChecks() {
-        List<BarCheck> pendingChecks = barCheckService.getChecksByStatus(BarCheck.ProcessingStatus.PENDING);
-        LOGGER.info("Found {} pending checks to process", pendingChecks.size());
+    private void submitPendingChecks() {
+        List<Long> pendingCheckIds = barCheckService.getClaimableCheckIds();
+        LOGGER.info("Found {} pending checks to process", pendingCheckIds.size());
 
-        for (BarCheck check : pendingChecks) {
+        for (Long checkId : pendingCheckIds) {
             try {
-                barCheckService.processCheck(check.getId());
-            } catch (Exception e) {
-                LOGGER.error("Error processing check {}: {}", check.getId(), e.getMessage(), e);
+                checkExtractionPipeline.submit(checkId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             }
         }
     }
@@ -0,0 +1,187 @@
+package is.yarr.beerscanner.scheduler;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import is.yarr.beerscanner.service.BarCheckService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The extraction stage of bar checks, run by its own pool of workers.
+ * Fetchers create {@code PENDING} checks and submit their IDs to a bounded queue, and workers claim and process them
+ * (which is where the slow menu extraction happens). When the queue is full, fetchers block until a worker catches up.
+ * Urgent checks (from admin-triggered jobs) go to the front of the queue.
+ * <p>
+ * The queue only holds IDs, and the pending checks in the database are the source of truth: checks are claimed with a
+ * lease in the database, so several instances can share the work, and checks that were pending or being processed
+ * when an instance stopped are picked up again on the next run.
+ */
+@Component
+public class CheckExtractionPipeline {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CheckExtractionPipeline.class);
+
+    private final BarCheckService barCheckService;
+    private final int workers;
+
+    private final BlockingDeque<Submission> queue;
+    private final ExecutorService workerPool;
+
+    // Checks submitted and not yet processed, including those still in the queue
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final Object idleLock = new Object();
+
+    public CheckExtractionPipeline(BarCheckService barCheckService,
+                                   @Value("${app.scheduler.extraction.workers}") int workers,
+                                   @Value("${app.scheduler.extraction.queue-capacity}") int queueCapacity,
+                                   MeterRegistry meterRegistry) {
+        this.barCheckService = barCheckService;
+        this.workers = workers;
+        this.queue = meterRegistry.gauge("beerscanner.extraction.queue", new LinkedBlockingDeque<Submission>(queueCapacity), BlockingDeque::size);
+
+        var threadCount = new AtomicInteger();
+        this.workerPool = Executors.newFixedThreadPool(workers, runnable -> {
+            var thread = new Thread(runnable, "check-extraction-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start the workers once the application is ready, after returning checks that were interrupted mid-processing
+     * to the pending state.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        int requeued = barCheckService.requeueInterruptedChecks();
+        if (requeued > 0) {
+            LOGGER.info("Returned {} interrupted checks to pending", requeued);
+        }
+
+        for (int i = 0; i < workers; i++) {
+            workerPool.submit(this::work);
+        }
+
+        LOGGER.info("Started {} check extraction workers", workers);
+    }
+
+    private record Submission(Long checkId, CompletableFuture<Void> processed) {
+    }
+
+    /**
+     * Submit a pending check for processing, blocking while the queue is full.
+     *
+     * @param checkId the ID of the pending check
+     * @return a future completed once a worker is done with the check (whether or not it claimed it)
+     * @throws InterruptedException if interrupted while waiting for space in the queue
+     */
+    public CompletableFuture<Void> submit(Long checkId) throws InterruptedException {
+        return submit(checkId, false);
+    }
+
+    /**
+     * Submit a pending check for processing ahead of all queued checks, blocking while the queue is full.
+     *
+     * @param checkId the ID of the pending check
+     * @return a future completed once a worker is done with the check (whether or not it claimed it)
+     * @throws InterruptedException if interrupted while waiting for space in the queue
+     */
+    public CompletableFuture<Void> submitUrgent(Long checkId) throws InterruptedException {
+        return submit(checkId, true);
+    }
+
+    private CompletableFuture<Void> submit(Long checkId, boolean urgent) throws InterruptedException {
+        var submission = new Submission(checkId, new CompletableFuture<>());
+
+        outstanding.incrementAndGet();
+        try {
+            if (urgent) {
+                queue.putFirst(submission);
+            } else {
+                queue.putLast(submission);
+            }
+        } catch (InterruptedException e) {
+            finished();
+            throw e;
+        }
+
+        return submission.processed();
+    }
+
+    /**
+     * Wait until every submitted check has been processed.
+     *
+     * @param timeout the maximum time to wait
+     * @return if all checks were processed before the timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitIdle(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        synchronized (idleLock) {
+            while (outstanding.get() > 0) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    return false;
+                }
+
+                idleLock.wait(remainingMillis);
+            }
+        }
+
+        return true;
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Submission submission;
+            try {
+                submission = queue.takeFirst();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            var checkId = submission.checkId();
+            try {
+                // The check may have been submitted twice, or claimed by another instance in the meantime
+                if (barCheckService.claimCheck(checkId)) {
+                    barCheckService.processCheck(checkId);
+                } else {
+                    LOGGER.debug("Check {} is no longer claimable, skipping", checkId);
+                }
+            } catch (Exception e) {
+                LOGGER.error("Error processing check {}: {}", checkId, e.getMessage(), e);
+            } finally {
+                finished();
+                submission.processed().complete(null);
+            }
+        }
+    }
+
+    private void finished() {
+        if (outstanding.decrementAndGet() <= 0) {
+            synchronized (idleLock) {
+                idleLock.notifyAll();
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workerPool.shutdownNow();
+    }
+}
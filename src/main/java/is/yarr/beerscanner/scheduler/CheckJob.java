@@ -0,0 +1,171 @@
+package is.yarr.beerscanner.scheduler;
+
+import is.yarr.beerscanner.dto.BarCheckDTO;
+import is.yarr.beerscanner.dto.CheckJobDTO;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An admin-triggered check of one or all bars, run in the background by {@link CheckJobService}.
+ * Jobs only live in memory, and progress is pushed to any subscribed server-sent event streams.
+ */
+public class CheckJob {
+
+    /**
+     * What a job checks.
+     */
+    public enum Type {
+        BAR,
+        ALL_BARS
+    }
+
+    /**
+     * Status of a job.
+     */
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private final UUID id = UUID.randomUUID();
+    private final Type type;
+    private final Long barId;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+
+    private Status status = Status.QUEUED;
+    private int totalBars;
+    private int checkedBars;
+    private int failedBars;
+    private int skippedBars;
+    private LocalDateTime finishedAt;
+    private final List<BarCheckDTO> checks = new ArrayList<>();
+
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final CompletableFuture<CheckJobDTO> completion = new CompletableFuture<>();
+
+    CheckJob(Type type, Long barId) {
+        this.type = type;
+        this.barId = barId;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    synchronized boolean isFinished() {
+        return finishedAt != null;
+    }
+
+    synchronized LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * @return a future completed with the job's final state once it finishes
+     */
+    CompletableFuture<CheckJobDTO> getCompletion() {
+        return completion;
+    }
+
+    void start(int totalBars) {
+        synchronized (this) {
+            this.status = Status.RUNNING;
+            this.totalBars = totalBars;
+        }
+
+        publish("progress");
+    }
+
+    void recordCheck(BarCheckDTO check) {
+        synchronized (this) {
+            checkedBars++;
+            checks.add(check);
+        }
+
+        publish("progress");
+    }
+
+    void recordFailure() {
+        synchronized (this) {
+            failedBars++;
+        }
+
+        publish("progress");
+    }
+
+    /**
+     * Record bars that weren't checked because another run is already checking them.
+     *
+     * @param count the number of bars
+     */
+    void recordSkipped(int count) {
+        synchronized (this) {
+            skippedBars += count;
+        }
+
+        publish("progress");
+    }
+
+    void finish(Status status) {
+        synchronized (this) {
+            this.status = status;
+            this.finishedAt = LocalDateTime.now();
+        }
+
+        publish("finished");
+        emitters.forEach(SseEmitter::complete);
+        emitters.clear();
+        completion.complete(toDTO());
+    }
+
+    /**
+     * Add a server-sent event stream, sending it the current state straight away.
+     *
+     * @param emitter the emitter
+     */
+    void subscribe(SseEmitter emitter) {
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+
+        // Subscribe before sending, so no update is missed in between
+        emitters.add(emitter);
+        var finished = isFinished();
+        send(emitter, finished ? "finished" : "progress", toDTO());
+
+        if (finished) {
+            emitters.remove(emitter);
+            emitter.complete();
+        }
+    }
+
+    synchronized CheckJobDTO toDTO() {
+        return new CheckJobDTO(id, type, barId, status, totalBars, checkedBars, failedBars, createdAt, finishedAt,
+                List.copyOf(checks), skippedBars);
+    }
+
+    private void publish(String eventName) {
+        var dto = toDTO();
+        for (var emitter : emitters) {
+            send(emitter, eventName, dto);
+        }
+    }
+
+    private void send(SseEmitter emitter, String eventName, CheckJobDTO dto) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(dto));
+        } catch (IOException | IllegalStateException e) {
+            // The client went away
+            emitters.remove(emitter);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package is.yarr.beerscanner.scheduler;
+
+import is.yarr.beerscanner.dto.CheckJobDTO;
+import is.yarr.beerscanner.model.Bar;
+import is.yarr.beerscanner.model.BarCheck;
+import is.yarr.beerscanner.service.BarCheckService;
+import is.yarr.beerscanner.service.BarService;
+import is.yarr.beerscanner.service.DTOMapperService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Runs admin-triggered checks in the background, so admin requests return a job ID straight away instead of tying
+ * up a request thread while menus are fetched and extracted.
+ * <p>
+ * Bars are leased to this instance for the job in batches, like the scheduled run claims them, so a job doesn't check
+ * a bar that the scheduled run or another instance is checking. Single-bar jobs are high priority: they don't wait
+ * behind the scheduled run for a global permit (but still respect the per-host cap), and their checks go to the front
+ * of the extraction queue. Jobs checking all bars are bound by the same caps as the scheduled run.
+ */
+@Component
+public class CheckJobService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CheckJobService.class);
+
+    // How long finished jobs can still be polled
+    private static final Duration JOB_RETENTION = Duration.ofHours(1);
+
+    private static final Duration EVENT_STREAM_TIMEOUT = Duration.ofMinutes(30);
+
+    private final BarService barService;
+    private final BarCheckService barCheckService;
+    private final BarCheckScheduler barCheckScheduler;
+    private final BarCheckExecutor barCheckExecutor;
+    private final CheckExtractionPipeline checkExtractionPipeline;
+    private final DTOMapperService dtoMapperService;
+    private final TransactionTemplate transactionTemplate;
+    private final int claimBatchSize;
+
+    private final Map<UUID, CheckJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService jobExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public CheckJobService(BarService barService, BarCheckService barCheckService, BarCheckScheduler barCheckScheduler, BarCheckExecutor barCheckExecutor, CheckExtractionPipeline checkExtractionPipeline, DTOMapperService dtoMapperService, TransactionTemplate transactionTemplate,
+                           @Value("${app.scheduler.bar-check.claim-batch-size}") int claimBatchSize) {
+        this.barService = barService;
+        this.barCheckService = barCheckService;
+        this.barCheckScheduler = barCheckScheduler;
+        this.barCheckExecutor = barCheckExecutor;
+        this.checkExtractionPipeline = checkExtractionPipeline;
+        this.dtoMapperService = dtoMapperService;
+        this.transactionTemplate = transactionTemplate;
+        this.claimBatchSize = claimBatchSize;
+    }
+
+    /**
+     * Start a job that checks a single bar, ignoring the menu hash.
+     *
+     * @param barId the bar ID
+     * @return the queued job
+     */
+    public CheckJobDTO startBarCheck(Long barId) {
+        Bar bar = barService.getBarById(barId);
+        return start(new CheckJob(CheckJob.Type.BAR, barId), () -> List.of(bar), true, true);
+    }
+
+    /**
+     * Start a job that checks all approved bars with a menu, whether or not they're due.
+     * Unchanged menus are still detected by their hash.
+     *
+     * @return the queued job
+     */
+    public CheckJobDTO startAllBarsCheck() {
+        return start(new CheckJob(CheckJob.Type.ALL_BARS, null), barService::getBarsWithMenus, false, false);
+    }
+
+    /**
+     * Get the current state of a job.
+     *
+     * @param jobId the job ID
+     * @return the job, or an empty optional if it doesn't exist or has expired
+     */
+    public Optional<CheckJobDTO> getJob(UUID jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(CheckJob::toDTO);
+    }
+
+    /**
+     * Wait for a job to finish, without blocking.
+     *
+     * @param jobId the job ID
+     * @return a future completed with the job's final state, or an empty optional if the job doesn't exist
+     */
+    public Optional<CompletableFuture<CheckJobDTO>> whenFinished(UUID jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(CheckJob::getCompletion);
+    }
+
+    /**
+     * Subscribe to a job's progress as server-sent events.
+     * A {@code progress} event is sent with the job's state straight away and after every bar, and a {@code finished}
+     * event is sent when the job is done, after which the stream completes.
+     *
+     * @param jobId the job ID
+     * @return the event stream, or an empty optional if the job doesn't exist
+     */
+    public Optional<SseEmitter> subscribe(UUID jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(job -> {
+            var emitter = new SseEmitter(EVENT_STREAM_TIMEOUT.toMillis());
+            job.subscribe(emitter);
+            return emitter;
+        });
+    }
+
+    private CheckJobDTO start(CheckJob job, Supplier<List<Bar>> bars, boolean forced, boolean priority) {
+        removeExpiredJobs();
+        jobs.put(job.getId(), job);
+
+        jobExecutor.submit(() -> run(job, bars, forced, priority));
+
+        LOGGER.info("Queued {} check job {}", job.toDTO().getType(), job.getId());
+        return job.toDTO();
+    }
+
+    private void run(CheckJob job, Supplier<List<Bar>> barSupplier, boolean forced, boolean priority) {
+        try {
+            var barIds = barSupplier.get().stream().map(Bar::getId).toList();
+            job.start(barIds.size());
+
+            // Bars sharing a menu source share a single fetch, and every batch shares the job's deadline
+            var deadline = barCheckExecutor.deadlineFromNow();
+            var sharedFetches = new SharedMenuFetches();
+            for (int i = 0; i < barIds.size(); i += claimBatchSize) {
+                var batchIds = barIds.subList(i, Math.min(i + claimBatchSize, barIds.size()));
+                var bars = barService.claimBars(batchIds, deadline);
+
+                // Bars leased by another run are already being checked, so they're skipped rather than failed
+                if (bars.size() < batchIds.size()) {
+                    job.recordSkipped(batchIds.size() - bars.size());
+                    LOGGER.info("Check job {} skipped {} bars that are being checked by another run", job.getId(), batchIds.size() - bars.size());
+                }
+
+                var report = barCheckExecutor.runAll(bars, bar -> checkBar(job, bar, forced, priority, sharedFetches), priority, deadline);
+
+                // Bars that didn't finish before the deadline
+                for (int j = 0; j < report.unfinished(); j++) {
+                    job.recordFailure();
+                }
+            }
+
+            job.finish(CheckJob.Status.COMPLETED);
+        } catch (Exception e) {
+            LOGGER.error("Check job {} failed: {}", job.getId(), e.getMessage(), e);
+            job.finish(CheckJob.Status.FAILED);
+        }
+    }
+
+    /**
+     * Fetch a bar's menu, wait for its check to be processed (ahead of the queue, for priority jobs), and record the
+     * result in the job.
+     *
+     * @return if the bar was checked
+     */
+    private boolean checkBar(CheckJob job, Bar bar, boolean forced, boolean priority, SharedMenuFetches sharedFetches) {
+        var check = barCheckScheduler.fetchBar(bar, forced, sharedFetches);
+        if (check.isEmpty()) {
+            job.recordFailure();
+            return false;
+        }
+
+        var checkId = check.get().getId();
+        if (check.get().getProcessingStatus() == BarCheck.ProcessingStatus.PENDING) {
+            try {
+                (priority ? checkExtractionPipeline.submitUrgent(checkId) : checkExtractionPipeline.submit(checkId)).join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                job.recordFailure();
+                return false;
+            }
+        }
+
+        // Map within a transaction, since the check's beers are loaded lazily
+        job.recordCheck(transactionTemplate.execute(status -> dtoMapperService.toDTO(barCheckService.getCheckById(checkId))));
+        return true;
+    }
+
+    private void removeExpiredJobs() {
+        var cutoff = LocalDateTime.now().minus(JOB_RETENTION);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jobExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,121 @@
+package is.yarr.beerscanner.scheduler;
+
+import is.yarr.beerscanner.model.Bar;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The menus fetched during a single check run, so bars that share a menu source (such as locations of the same group
+ * pointing at the same PDF) are only fetched once per run.
+ * A bar's menu source is its normalized menu URL, menu XPath and webpage settings. The first bar of a source fetches
+ * the menu, and other bars of the source wait for and share its content.
+ */
+class SharedMenuFetches {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedMenuFetches.class);
+
+    private final Map<String, CompletableFuture<BarCheckScheduler.MenuContent>> fetches = new ConcurrentHashMap<>();
+
+    /**
+     * Fetches a bar's menu.
+     */
+    @FunctionalInterface
+    interface MenuFetcher {
+        BarCheckScheduler.MenuContent fetch(Bar bar) throws IOException;
+    }
+
+    /**
+     * Get a bar's menu, fetching it only if no other bar with the same menu source has fetched it in this run.
+     * Bars fetch separately if the shared fetch failed, or if it was a not modified response, which only applies to
+     * the validators of the bar that sent them.
+     *
+     * @param bar the bar
+     * @param fetcher fetches the bar's menu
+     * @return the menu content
+     * @throws IOException if an I/O error occurs
+     */
+    BarCheckScheduler.MenuContent fetch(Bar bar, MenuFetcher fetcher) throws IOException {
+        var fetch = new CompletableFuture<BarCheckScheduler.MenuContent>();
+        var sharedFetch = fetches.putIfAbsent(sourceKey(bar), fetch);
+
+        if (sharedFetch == null) {
+            try {
+                var content = fetcher.fetch(bar);
+                fetch.complete(content);
+                return content;
+            } catch (IOException | RuntimeException e) {
+                fetch.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        BarCheckScheduler.MenuContent content;
+        try {
+            content = sharedFetch.join();
+        } catch (CompletionException e) {
+            return fetcher.fetch(bar);
+        }
+
+        if (content.notModified()) {
+            return fetcher.fetch(bar);
+        }
+
+        LOGGER.info("Sharing the menu fetched for another bar with the same menu source with bar {}", bar.getName());
+        return content;
+    }
+
+    /**
+     * Get the key of a bar's menu source. Bars with the same key serve the same menu content.
+     *
+     * @param bar the bar
+     * @return the key
+     */
+    static String sourceKey(Bar bar) {
+        var settings = bar.getWebpageSettings();
+        var settingsKey = settings == null ? "" : String.join("\n",
+                Objects.toString(settings.getMenuComponentXPath(), ""),
+                Objects.toString(settings.getAgeVerificationXPath(), ""),
+                Objects.toString(settings.getCleanupScript(), ""),
+                String.valueOf(settings.isProcessAsText()));
+
+        return String.join("\n", normalizeUrl(bar.getMenuUrl()), Objects.toString(bar.getMenuXPath(), "").strip(), settingsKey);
+    }
+
+    /**
+     * Normalize a URL, so the same URL written differently has the same key. The scheme and host are lowercased,
+     * the path is normalized and any fragment is dropped.
+     *
+     * @param url the URL
+     * @return the normalized URL, or the stripped URL if it isn't valid
+     */
+    static String normalizeUrl(String url) {
+        if (url == null) {
+            return "";
+        }
+
+        try {
+            var uri = new URI(url.strip()).normalize();
+            if (uri.getScheme() == null || uri.getHost() == null) {
+                return url.strip();
+            }
+
+            var path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            var port = uri.getPort() == -1 ? "" : ":" + uri.getPort();
+            var query = uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery();
+
+            return uri.getScheme().toLowerCase(Locale.ROOT) + "://" + uri.getHost().toLowerCase(Locale.ROOT) + port + path + query;
+        } catch (URISyntaxException e) {
+            return url.strip();
+        }
+    }
+}
@@ -7,14 +7,20 @@ import is.yarr.beerscanner.model.beer.BarBeerCurrent;
 import is.yarr.beerscanner.repository.BarBeerCurrentRepository;
 import is.yarr.beerscanner.repository.BarCheckRepository;
 import is.yarr.beerscanner.repository.BarRepository;
+import is.yarr.beerscanner.service.menu.MenuBlobStore;
+import is.yarr.beerscanner.service.menu.PdfTextLayerExtractor;
 import is.yarr.beerscanner.service.openai.BeerListOutput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.List;
@@ -36,8 +42,17 @@ public class BarCheckService {
     private final OpenAIService openAIService;
     private final ScraperService scraperService;
     private final BarBeerCurrentRepository barBeerCurrentRepository;
-
-    public BarCheckService(BarCheckRepository barCheckRepository, BarRepository barRepository, BeerService beerService, NotificationService notificationService, OpenAIService openAIService, ScraperService scraperService, BarBeerCurrentRepository barBeerCurrentRepository) {
+    private final CheckCadenceService checkCadenceService;
+    private final MenuBlobStore menuBlobStore;
+    private final PdfTextLayerExtractor pdfTextLayerExtractor;
+    private final DeltaExtractionService deltaExtractionService;
+    private final SharedExtractionCache sharedExtractionCache;
+    private final String instanceId;
+    private final Duration checkLeaseDuration;
+
+    public BarCheckService(BarCheckRepository barCheckRepository, BarRepository barRepository, BeerService beerService, NotificationService notificationService, OpenAIService openAIService, ScraperService scraperService, BarBeerCurrentRepository barBeerCurrentRepository, CheckCadenceService checkCadenceService, MenuBlobStore menuBlobStore, PdfTextLayerExtractor pdfTextLayerExtractor, DeltaExtractionService deltaExtractionService, SharedExtractionCache sharedExtractionCache,
+                           @Value("${app.instance-id}") String instanceId,
+                           @Value("${app.scheduler.extraction.lease-duration}") Duration checkLeaseDuration) {
         this.barCheckRepository = barCheckRepository;
         this.barRepository = barRepository;
         this.beerService = beerService;
@@ -45,6 +60,13 @@ public class BarCheckService {
         this.openAIService = openAIService;
         this.scraperService = scraperService;
         this.barBeerCurrentRepository = barBeerCurrentRepository;
+        this.checkCadenceService = checkCadenceService;
+        this.menuBlobStore = menuBlobStore;
+        this.pdfTextLayerExtractor = pdfTextLayerExtractor;
+        this.deltaExtractionService = deltaExtractionService;
+        this.sharedExtractionCache = sharedExtractionCache;
+        this.instanceId = instanceId;
+        this.checkLeaseDuration = checkLeaseDuration;
     }
 
     /**
@@ -86,27 +108,37 @@ public class BarCheckService {
 
     /**
      * Create a new check.
+     * Changes are detected by the semantic hash, so cosmetic changes to the menu don't count (for image menus, that's
+     * a hash of their decoded pixels). The menu content is only stored (in the blob store) if the menu changed, since
+     * unchanged menus are never extracted.
      *
      * @param bar the bar to check
-     * @param menuContent the menu content
-     * @param menuHash the menu hash
+     * @param menuContent the raw menu content
+     * @param menuHash the hash of the raw menu content
+     * @param semanticHash the hash of the menu's canonical form
      * @return the created check
      */
     @Transactional
-    public BarCheck createCheck(Bar bar, boolean forced, String menuContent, String contentType, String menuHash, int initialProcessDuration) {
+    public BarCheck createCheck(Bar bar, boolean forced, byte[] menuContent, String contentType, String menuHash, String semanticHash, int initialProcessDuration) {
         // Check if the menu has changed
-        boolean hasChanges = forced || (bar.getLastMenuHash() == null || !bar.getLastMenuHash().equals(menuHash));
+        boolean sameMenu = isSameMenu(bar, menuHash, semanticHash);
+
+        boolean hasChanges = forced || !sameMenu;
 
         // Create the check
         BarCheck check = BarCheck.builder()
                 .bar(bar)
-                .menuContent(menuContent)
                 .contentType(contentType)
                 .menuHash(menuHash)
                 .hasChanges(hasChanges)
                 .processDuration(initialProcessDuration)
                 .processingStatus(BarCheck.ProcessingStatus.PENDING)
                 .build();
+        check.setSemanticHash(semanticHash);
+
+        if (hasChanges) {
+            check.setMenuBlobKey(menuBlobStore.put(menuContent));
+        }
         
         // Save the check
         check = barCheckRepository.save(check);
@@ -114,11 +146,145 @@ public class BarCheckService {
         // Update the bar
         bar.setLastMenuHash(menuHash);
         bar.setLastCheckedAt(LocalDateTime.now());
-        barRepository.save(bar);
+        bar.setLastSemanticHash(semanticHash);
+
+        checkCadenceService.scheduleNextCheck(bar);
+        saveCheckedBar(bar);
         
         return check;
     }
 
+    /**
+     * Check if a menu is the same as the bar's last one.
+     * Bars last checked before semantic hashes were recorded are compared by their raw hash instead.
+     *
+     * @param bar the bar
+     * @param menuHash the hash of the raw menu content
+     * @param semanticHash the hash of the menu's canonical form
+     * @return if the menu is unchanged
+     */
+    private static boolean isSameMenu(Bar bar, String menuHash, String semanticHash) {
+        if (bar.getLastSemanticHash() != null) {
+            return bar.getLastSemanticHash().equals(semanticHash);
+        }
+
+        return bar.getLastMenuHash() != null && bar.getLastMenuHash().equals(menuHash);
+    }
+
+    /**
+     * Create a check for a menu the server reported as not modified since the last download.
+     * Nothing was downloaded, so the check reuses the bar's last menu hashes and has no changes.
+     *
+     * @param bar the bar to check
+     * @param contentType the content type reported by the server, if any
+     * @param initialProcessDuration the time it took to make the conditional request
+     * @return the created check
+     */
+    @Transactional
+    public BarCheck createNotModifiedCheck(Bar bar, String contentType, int initialProcessDuration) {
+        BarCheck check = BarCheck.builder()
+                .bar(bar)
+                .contentType(contentType)
+                .menuHash(bar.getLastMenuHash())
+                .hasChanges(false)
+                .processDuration(initialProcessDuration)
+                .processingStatus(BarCheck.ProcessingStatus.PENDING)
+                .build();
+        check.setSemanticHash(bar.getLastSemanticHash());
+        check.setNotModified(true);
+
+        check = barCheckRepository.save(check);
+
+        bar.setLastCheckedAt(LocalDateTime.now());
+        checkCadenceService.scheduleNextCheck(bar);
+        saveCheckedBar(bar);
+
+        return check;
+    }
+
+    /**
+     * Create a check for a bar whose menu host is unavailable, so the fetch was skipped.
+     * The check is final and has no changes, and the bar is retried later.
+     *
+     * @param bar the bar to check
+     * @param errorMessage why the host is unavailable
+     * @param initialProcessDuration the time spent before the fetch was skipped
+     * @return the created check
+     */
+    @Transactional
+    public BarCheck createHostUnavailableCheck(Bar bar, String errorMessage, int initialProcessDuration) {
+        BarCheck check = BarCheck.builder()
+                .bar(bar)
+                .hasChanges(false)
+                .processDuration(initialProcessDuration)
+                .processingStatus(BarCheck.ProcessingStatus.HOST_UNAVAILABLE)
+                .errorMessage(errorMessage)
+                .build();
+
+        check = barCheckRepository.save(check);
+
+        checkCadenceService.scheduleRetry(bar);
+        saveCheckedBar(bar);
+
+        return check;
+    }
+
+    /**
+     * Save a bar after its check, releasing its lease so it's picked up by whichever instance runs next once it's due.
+     *
+     * @param bar the checked bar
+     */
+    private void saveCheckedBar(Bar bar) {
+        bar.setLeaseOwner(null);
+        bar.setLeaseExpiresAt(null);
+        barRepository.save(bar);
+    }
+
+    /**
+     * Defer a bar whose check failed before it could be recorded, so it isn't retried on every run.
+     *
+     * @param bar the bar whose check failed
+     */
+    @Transactional
+    public void deferFailedCheck(Bar bar) {
+        checkCadenceService.scheduleRetry(bar);
+        saveCheckedBar(bar);
+    }
+
+    /**
+     * Get the IDs of checks waiting to be processed, including checks whose processing lease has expired because the
+     * instance processing them stopped.
+     *
+     * @return the IDs of the claimable checks, oldest first
+     */
+    public List<Long> getClaimableCheckIds() {
+        return barCheckRepository.findClaimableIds(LocalDateTime.now());
+    }
+
+    /**
+     * Claim a check for processing by leasing it to this instance, so no other worker or instance processes it too.
+     *
+     * @param checkId the check ID
+     * @return if the check was claimable and is now claimed
+     */
+    @Transactional
+    public boolean claimCheck(Long checkId) {
+        var now = LocalDateTime.now();
+        return barCheckRepository.claim(checkId, instanceId, now, now.plus(checkLeaseDuration)) == 1;
+    }
+
+    /**
+     * Return checks that were interrupted mid-processing before checks were leased to the pending state. Checks
+     * leased by an instance that stopped (including this one, before a restart) are claimable again once their leases
+     * expire.
+     *
+     * @return the number of checks returned to pending
+     */
+    @Transactional
+    public int requeueInterruptedChecks() {
+        return barCheckRepository.releaseUnleasedProcessing();
+    }
+
     /**
      * Process a check.
      *
@@ -145,8 +311,13 @@ public class BarCheckService {
             // Only process if there are changes
             if (check.isHasChanges()) {
 
-                // Extract beers from menu content using OpenAI
-                List<BeerListOutput.BeerOutput> beerOutputs = openAIService.extractBeersFromMenu(check.getMenuContent(), check.getContentType(), bar.getAiInstructions());
+                // Extract beers from menu content using OpenAI, unless another bar with the same menu just did
+                var extraction = extractBeers(check, bar);
+                if (extraction.shared()) {
+                    check.setExtractionMode(BarCheck.ExtractionMode.SHARED);
+                }
+
+                List<BeerListOutput.BeerOutput> beerOutputs = extraction.beers();
 
                 for (var beerOutput : beerOutputs) {
                     System.out.println(beerOutput);
@@ -172,6 +343,9 @@ public class BarCheckService {
             check.setProcessingStatus(BarCheck.ProcessingStatus.FAILED);
             check.setErrorMessage(e.getMessage());
         } finally {
+            check.setLeaseOwner(null);
+            check.setLeaseExpiresAt(null);
+
             int totalTime = (int) (System.currentTimeMillis() - startTime) + check.getProcessDuration();
 
             check.setProcessDuration(totalTime);
@@ -182,6 +356,136 @@ public class BarCheckService {
         return barCheckRepository.save(check);
     }
 
+    /**
+     * Extract the beers from a check's menu, recording how the menu was sent.
+     * Text menus that only changed a little since the previous extracted check only have their changed lines sent.
+     * Other menus are extracted whole, or shared with another bar that recently extracted the same menu. Changes are
+     * never shared, since they're applied to this bar's own previous beers.
+     *
+     * @param check the check
+     * @param bar the checked bar
+     * @return the extracted beers
+     * @throws IOException if the menu can't be loaded
+     */
+    SharedExtractionCache.Result extractBeers(BarCheck check, Bar bar) throws IOException {
+        var content = loadMenuContent(check);
+        var contentType = check.getContentType();
+
+        var text = menuText(content, contentType);
+        if (text.isPresent()) {
+            var beers = extractBeerChanges(check, bar, text.get());
+            if (beers.isPresent()) {
+                LOGGER.info("Extracted changes to the menu of bar {}", bar.getName());
+                check.setExtractionMode(BarCheck.ExtractionMode.DELTA);
+                return new SharedExtractionCache.Result(beers.get(), false);
+            }
+        }
+
+        return sharedExtractionCache.extract(check, bar, () -> extractWholeMenu(check, bar, content, contentType, text));
+    }
+
+    /**
+     * Extract the beers from a check's whole menu, recording how the menu was sent.
+     * PDFs with a usable text layer are sent as text, which is faster and uses fewer tokens than uploading the file.
+     *
+     * @param check the check
+     * @param bar the checked bar
+     * @param content the raw menu content
+     * @param contentType the content type of the menu
+     * @param text the text of the menu, if it has any
+     * @return the extracted beers
+     */
+    private List<BeerListOutput.BeerOutput> extractWholeMenu(BarCheck check, Bar bar, byte[] content, String contentType, Optional<String> text) {
+        BarCheck.ExtractionMode mode;
+        if ("text/plain".equals(contentType)) {
+            mode = BarCheck.ExtractionMode.TEXT;
+        } else if (text.isPresent()) {
+            content = text.get().getBytes(StandardCharsets.UTF_8);
+            contentType = "text/plain";
+            mode = BarCheck.ExtractionMode.PDF_TEXT_LAYER;
+        } else {
+            mode = BarCheck.ExtractionMode.FILE;
+        }
+
+        LOGGER.info("Extracting menu of bar {} as {} ({} bytes)", bar.getName(), mode, content.length);
+        check.setExtractionMode(mode);
+
+        return openAIService.extractBeersFromMenu(content, contentType, bar.getAiInstructions());
+    }
+
+    /**
+     * Extract the beers of a text menu from the lines that changed since the bar's previous extracted check.
+     *
+     * @param check the check
+     * @param bar the checked bar
+     * @param text the text of the check's menu
+     * @return the beers, or an empty optional if the whole menu should be extracted
+     */
+    private Optional<List<BeerListOutput.BeerOutput>> extractBeerChanges(BarCheck check, Bar bar, String text) {
+        var previousCheck = barCheckRepository.findFirstByBarAndIdLessThanAndHasChangesTrueAndProcessingStatusOrderByIdDesc(bar, check.getId(), BarCheck.ProcessingStatus.COMPLETED);
+        if (previousCheck.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Optional<String> previousText;
+        try {
+            previousText = menuText(loadMenuContent(previousCheck.get()), previousCheck.get().getContentType());
+        } catch (IOException e) {
+            LOGGER.warn("Failed to load the previous menu of bar {}, extracting the whole menu: {}", bar.getName(), e.getMessage());
+            return Optional.empty();
+        }
+
+        if (previousText.isEmpty()) {
+            return Optional.empty();
+        }
+
+        try {
+            return deltaExtractionService.extractBeers(previousText.get(), text, bar.getCurrentBeersAsOrderedBeerSet(), bar.getAiInstructions());
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to extract the changes to the menu of bar {}, extracting the whole menu: {}", bar.getName(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Get the text of a menu, if it's a text menu or a PDF with a usable text layer.
+     *
+     * @param content the raw menu content
+     * @param contentType the content type of the menu
+     * @return the menu text, or an empty optional if the menu must be sent as a file
+     */
+    private Optional<String> menuText(byte[] content, String contentType) {
+        if ("text/plain".equals(contentType)) {
+            return Optional.of(new String(content, StandardCharsets.UTF_8));
+        }
+
+        if ("application/pdf".equals(contentType)) {
+            return pdfTextLayerExtractor.extract(content);
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Load the menu content of a check, from the blob store or, for checks that haven't been migrated yet, from the
+     * database.
+     *
+     * @param check the check
+     * @return the raw menu content
+     * @throws IOException if the blob can't be read
+     */
+    private byte[] loadMenuContent(BarCheck check) throws IOException {
+        if (check.getMenuBlobKey() != null) {
+            return menuBlobStore.get(check.getMenuBlobKey());
+        }
+
+        if (check.getMenuContent() != null) {
+            return MenuBlobStore.decodeLegacyContent(check.getMenuContent(), check.getContentType());
+        }
+
+        throw new IOException("Check %d has no stored menu".formatted(check.getId()));
+    }
+
     public record BarUpdateResult(int changes, Set<Beer> beersAdded, Set<Beer> beersRemoved) {
         BarUpdateResult(Set<Beer> beersAdded, Set<Beer> beersRemoved) {
             this(beersAdded.size() + beersRemoved.size(), beersAdded, beersRemoved);
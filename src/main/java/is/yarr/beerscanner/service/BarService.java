@@ -11,12 +11,20 @@ import is.yarr.beerscanner.repository.BarBeerCurrentRepository;
 import is.yarr.beerscanner.repository.BeerRepository;
 import is.yarr.beerscanner.repository.ScraperStatsRepository;
 import is.yarr.beerscanner.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
 /**
@@ -30,13 +38,22 @@ public class BarService {
     private final BarBeerCurrentRepository barBeerCurrentRepository;
     private final UserRepository userRepository;
     private final ScraperStatsRepository scraperStatsRepository;
+    private final String instanceId;
+    private final Duration barLeaseMargin;
+    private final int claimBatchSize;
 
-    public BarService(BarRepository barRepository, BeerRepository beerRepository, BarBeerCurrentRepository barBeerCurrentRepository, UserRepository userRepository, ScraperStatsRepository scraperStatsRepository) {
+    public BarService(BarRepository barRepository, BeerRepository beerRepository, BarBeerCurrentRepository barBeerCurrentRepository, UserRepository userRepository, ScraperStatsRepository scraperStatsRepository,
+                      @Value("${app.instance-id}") String instanceId,
+                      @Value("${app.scheduler.bar-check.lease-margin}") Duration barLeaseMargin,
+                      @Value("${app.scheduler.bar-check.claim-batch-size}") int claimBatchSize) {
         this.barRepository = barRepository;
         this.beerRepository = beerRepository;
         this.barBeerCurrentRepository = barBeerCurrentRepository;
         this.userRepository = userRepository;
         this.scraperStatsRepository = scraperStatsRepository;
+        this.instanceId = instanceId;
+        this.barLeaseMargin = barLeaseMargin;
+        this.claimBatchSize = claimBatchSize;
     }
 
     /**
@@ -109,10 +126,24 @@ public class BarService {
         existingBar.setLocation(bar.getLocation());
 
         existingBar.setAiInstructions(bar.getAiInstructions());
+
+        if (!Objects.equals(existingBar.getMenuUrl(), bar.getMenuUrl())) {
+            // A new menu source has no history, so check it on the next run
+            existingBar.setNextCheckAt(null);
+        }
+
+        if (!Objects.equals(existingBar.getMenuUrl(), bar.getMenuUrl()) || !Objects.equals(existingBar.getMenuXPath(), bar.getMenuXPath())) {
+            // The menu URL found with the old settings may no longer be the menu
+            existingBar.setResolvedMenuUrl(null);
+            existingBar.setResolvedMenuType(null);
+            existingBar.setMenuUrlResolvedAt(null);
+        }
+
         existingBar.setMenuUrl(bar.getMenuUrl());
         existingBar.setMenuXPath(bar.getMenuXPath());
 
         existingBar.setWebpageSettings(bar.getWebpageSettings());
+        existingBar.setOpensAt(bar.getOpensAt());
 
         return barRepository.save(existingBar);
     }
@@ -150,10 +181,59 @@ public class BarService {
      *
      * @return a list of bars that need to be checked
      */
-    public List<Bar> getBarsToCheck() { // TODO
-//        LocalDateTime checkTime = LocalDateTime.now().minusHours(24);
-//        return barRepository.findByLastCheckedAtBeforeOrLastCheckedAtIsNull(checkTime);
-        return barRepository.findAll();
+    public List<Bar> getBarsToCheck() {
+        return barRepository.findDueForCheck(LocalDateTime.now());
+    }
+
+    /**
+     * Get all approved bars with a menu, whether or not they're due for a check.
+     *
+     * @return the bars with a menu
+     */
+    public List<Bar> getBarsWithMenus() {
+        return barRepository.findByIsApprovedTrueAndMenuUrlIsNotNull();
+    }
+
+    /**
+     * Claim a batch of the bars that need to be checked by leasing them to this instance, so other instances running
+     * at the same time check different bars. Bars are claimed a batch at a time, so the due bars are divided between
+     * instances instead of the first instance to run leasing all of them.
+     * The lease lasts until a margin after the run's deadline, so it can't expire while the bar's check is still
+     * running, and is released when the bar's check is recorded; if this instance stops before then, the bar is picked
+     * up again once the lease expires.
+     *
+     * @param runDeadline the deadline of the run checking the bars
+     * @return the claimed bars, or an empty list if there are no more bars to check
+     */
+    @Transactional
+    public List<Bar> claimBarsToCheck(Instant runDeadline) {
+        var bars = barRepository.findClaimableForCheck(LocalDateTime.now(), PageRequest.of(0, claimBatchSize));
+        return lease(bars, runDeadline);
+    }
+
+    /**
+     * Claim specific bars to check now, whether or not they're due, by leasing them to this instance like
+     * {@link #claimBarsToCheck(Instant)}. Bars leased by another run are skipped, since they're already being checked.
+     *
+     * @param barIds the bar IDs
+     * @param runDeadline the deadline of the run checking the bars
+     * @return the claimed bars
+     */
+    @Transactional
+    public List<Bar> claimBars(Collection<Long> barIds, Instant runDeadline) {
+        var bars = barRepository.findClaimableByIds(barIds, LocalDateTime.now());
+        return lease(bars, runDeadline);
+    }
+
+    private List<Bar> lease(List<Bar> bars, Instant runDeadline) {
+        var leaseExpiresAt = LocalDateTime.ofInstant(runDeadline.plus(barLeaseMargin), ZoneId.systemDefault());
+
+        for (Bar bar : bars) {
+            bar.setLeaseOwner(instanceId);
+            bar.setLeaseExpiresAt(leaseExpiresAt);
+        }
+
+        return barRepository.saveAll(bars);
     }
 
     /**
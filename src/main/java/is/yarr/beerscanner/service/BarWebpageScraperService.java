@@ -1,30 +1,58 @@
 package is.yarr.beerscanner.service;
 
 import is.yarr.beerscanner.model.Bar;
+import is.yarr.beerscanner.model.BarWebpageSettings;
+import is.yarr.beerscanner.service.webdriver.PageReadiness;
+import is.yarr.beerscanner.service.webdriver.ResourceBlocking;
+import is.yarr.beerscanner.service.webdriver.WebDriverPool;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.openqa.selenium.By;
 import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.chrome.ChromeOptions;
-import org.openqa.selenium.remote.RemoteWebDriver;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.net.URI;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Duration;
-import java.time.temporal.ChronoUnit;
+import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class BarWebpageScraperService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BarWebpageScraperService.class);
 
+    private final WebDriverPool webDriverPool;
+    private final PageReadiness pageReadiness;
+    private final ResourceBlocking resourceBlocking;
+    private final StaticHtmlScraper staticHtmlScraper;
+    private final MeterRegistry meterRegistry;
+    private final boolean staticEnabled;
+    private final Duration staticRetryAfter;
+
+    public BarWebpageScraperService(WebDriverPool webDriverPool, PageReadiness pageReadiness, ResourceBlocking resourceBlocking,
+                                    StaticHtmlScraper staticHtmlScraper, MeterRegistry meterRegistry,
+                                    @Value("${app.scraper.static.enabled}") boolean staticEnabled,
+                                    @Value("${app.scraper.static.retry-after}") Duration staticRetryAfter) {
+        this.webDriverPool = webDriverPool;
+        this.pageReadiness = pageReadiness;
+        this.resourceBlocking = resourceBlocking;
+        this.staticHtmlScraper = staticHtmlScraper;
+        this.meterRegistry = meterRegistry;
+        this.staticEnabled = staticEnabled;
+        this.staticRetryAfter = staticRetryAfter;
+    }
+
     private static final String JS_PROCESSING_SCRIPT = """
             /**
              * Recursively extracts and concatenates all text content from a given HTML node
@@ -129,89 +157,6 @@ public class BarWebpageScraperService {
             }
             """;
 
-    /**
-     * @return A base64 image of the bar's menu
-     */
-    /* public String processBarWebpage(Bar bar) {
-        var webpageSettings = bar.getWebpageSettings();
-        var menuUrl = bar.getMenuUrl();
-
-        var menuXPath = Objects.requireNonNull(webpageSettings.getMenuComponentXPath(), "Menu Component XPath cannot be null");
-        var ageVerificationXPath = Objects.requireNonNullElse(webpageSettings.getAgeVerificationXPath(), "");
-        var cleanupScript = Objects.requireNonNullElse(webpageSettings.getCleanupScript(), "");
-
-        WebDriver driver = null;
-        try {
-            var chromeOptions = new ChromeOptions();
-//             chromeOptions.addArguments("--headless");
-
-            driver = new RemoteWebDriver(URI.create(System.getenv("SELENIUM_HUB_URL")).toURL(), chromeOptions);
-
-            driver.get(menuUrl);
-
-            // Click age verification button, if present
-            if (!ageVerificationXPath.isBlank()) {
-                LOGGER.info("Clicking age verification button with XPath: {}", ageVerificationXPath);
-                clickElementWhenAvailable(driver, ageVerificationXPath);
-            }
-
-            // Wait for the page to load completely
-            Thread.sleep(2000);
-
-            if (!cleanupScript.isBlank()) {
-                var javascriptExecutor = (JavascriptExecutor) driver;
-                LOGGER.info("Cleaning up page with script: {}", cleanupScript);
-                javascriptExecutor.executeScript(cleanupScript);
-            }
-
-            WebElement menuElement;
-            try {
-                menuElement = waitForElement(driver, menuXPath);
-            } catch (Exception e) {
-                System.err.println("Menu element not found with XPath: " + menuXPath);
-
-                var imageBytes = Shutterbug.shootPage(driver, Capture.VERTICAL_SCROLL).getBytes();
-
-                var originalImage = ImageIO.read(new ByteArrayInputStream(imageBytes));
-
-                var time = String.valueOf(System.currentTimeMillis());
-
-                ImageIO.write(originalImage, "png", Paths.get(time + "_EXCEPTION.png").toFile());
-
-                throw new RuntimeException("Menu element not found", e);
-            }
-
-            var imageBytes = Shutterbug.shootElement(driver, menuElement, CaptureElement.VERTICAL_SCROLL).getBytes();
-
-            var originalImage = ImageIO.read(new ByteArrayInputStream(imageBytes));
-
-            var time = String.valueOf(System.currentTimeMillis());
-
-            ImageIO.write(originalImage, "png", Paths.get(time + "_screenshot_original.png").toFile());
-
-            // Resize image to max 1000px
-            var resizedImage = BarCheckScheduler.resizeImage(originalImage, 1000);
-
-            ImageIO.write(resizedImage, "png", Paths.get(time + "_screenshot_scaled.png").toFile());
-
-            throw new RuntimeException("Breaking... this to test the screenshot saving functionality");
-
-        } catch (MalformedURLException e) {
-            System.err.println("Invalid Selenium Hub URL: " + e.getMessage());
-        } catch (IOException e) {
-            System.err.println("Error saving screenshot: " + e.getMessage());
-        } catch (Exception e) {
-            System.err.println("An error occurred: " + e.getMessage());
-            e.printStackTrace();
-        } finally {
-            if (driver != null) {
-                driver.quit();
-            }
-        }
-
-        return null;
-    } */
-
     record HtmlToTextResponse(boolean success, String errorMessage, String data) {
     }
 
@@ -251,6 +196,56 @@ public class BarWebpageScraperService {
         }
     }
 
+    /**
+     * Check if a bar's webpage should be scraped from its HTML before falling back to a browser.
+     * Bars whose menus were found to need a browser are only tried without one again after a while, in case the
+     * webpage changed. Bars with a cleanup script always need a browser to run it.
+     *
+     * @param bar the bar
+     * @return if the webpage's HTML should be scraped first
+     */
+    public boolean shouldScrapeStatically(Bar bar) {
+        var webpageSettings = bar.getWebpageSettings();
+        if (!staticEnabled || webpageSettings == null || !webpageSettings.isProcessAsText()
+                || webpageSettings.getMenuComponentXPath() == null
+                || (webpageSettings.getCleanupScript() != null && !webpageSettings.getCleanupScript().isBlank())) {
+            return false;
+        }
+
+        return bar.getScrapeMethod() != Bar.ScrapeMethod.BROWSER
+                || bar.getScrapeMethodLearnedAt() == null
+                || bar.getScrapeMethodLearnedAt().plus(staticRetryAfter).isBefore(LocalDateTime.now());
+    }
+
+    /**
+     * Scrape the text of a bar's menu from its webpage's HTML, without a browser, and remember whether it worked.
+     * The bar is not saved.
+     *
+     * @param bar the bar
+     * @param html the webpage
+     * @param pageUrl the URL of the webpage
+     * @return the menu text, or an empty optional if the menu needs a browser
+     */
+    public Optional<String> processStaticBarWebpage(Bar bar, InputStream html, String pageUrl) {
+        Optional<String> text;
+        try {
+            text = staticHtmlScraper.scrape(html, pageUrl, bar.getWebpageSettings().getMenuComponentXPath());
+        } catch (IOException e) {
+            LOGGER.warn("Failed to scrape the HTML of {}: {}", pageUrl, e.getMessage());
+            return Optional.empty();
+        }
+
+        var scrapeMethod = text.isPresent() ? Bar.ScrapeMethod.STATIC : Bar.ScrapeMethod.BROWSER;
+        if (bar.getScrapeMethod() != scrapeMethod) {
+            LOGGER.info("Scraping the menu of bar {} with {} from now on", bar.getName(), scrapeMethod);
+        }
+
+        bar.setScrapeMethod(scrapeMethod);
+        bar.setScrapeMethodLearnedAt(LocalDateTime.now());
+
+        return text;
+    }
+
     public Optional<String> processTextualBarWebpage(Bar bar) {
         var webpageSettings = bar.getWebpageSettings();
         var menuUrl = bar.getMenuUrl();
@@ -263,84 +258,83 @@ public class BarWebpageScraperService {
         var ageVerificationXPath = Objects.requireNonNullElse(webpageSettings.getAgeVerificationXPath(), "");
         var cleanupScript = Objects.requireNonNullElse(webpageSettings.getCleanupScript(), "");
 
-        WebDriver driver = null;
         try {
-            var chromeOptions = new ChromeOptions();
-//             chromeOptions.addArguments("--headless");
-
-            driver = new RemoteWebDriver(URI.create(System.getenv("SELENIUM_HUB_URL")).toURL(), chromeOptions);
-            driver.get(menuUrl);
+            return Optional.of(webDriverPool.withSession(driver -> scrapeText(driver, webpageSettings, menuUrl, menuXPath, ageVerificationXPath, cleanupScript)));
+        } catch (Exception e) {
+            LOGGER.error("An error occurred while processing the bar webpage", e);
+        }
 
-            // Click age verification button, if present
-            if (!ageVerificationXPath.isBlank()) {
-                LOGGER.info("Clicking age verification button with XPath: {}", ageVerificationXPath);
-                tryToClickElementWhenAvailable(driver, ageVerificationXPath);
-            }
+        return Optional.empty();
+    }
 
-            // Wait for the page to load completely
-            Thread.sleep(2000);
+    private String scrapeText(WebDriver driver, BarWebpageSettings webpageSettings, String menuUrl, String menuXPath, String ageVerificationXPath, String cleanupScript) {
+        var timeout = pageReadiness.timeout(webpageSettings);
 
-            var javascriptExecutor = (JavascriptExecutor) driver;
+        var blocking = resourceBlocking.apply(driver, webpageSettings);
 
-            if (!cleanupScript.isBlank()) {
-                LOGGER.info("Cleaning up page with script: {}", cleanupScript);
-                javascriptExecutor.executeScript(cleanupScript);
-            }
+        // Load the page until it's ready, timed by whether resources were blocked to compare how long both take.
+        // Clicking the age verification button isn't affected by blocking, so it isn't timed
+        long loadStart = System.nanoTime();
+        driver.get(menuUrl);
 
-            try {
-                // Ensure the menu is present
-                waitForElementPresence(driver, menuXPath);
-            } catch (Exception e) {
-                LOGGER.error("Menu element not found with XPath: {}", menuXPath);
-                throw new RuntimeException("Menu element not found", e);
-            }
+        // Click age verification button, if present
+        long clickTime = 0;
+        if (!ageVerificationXPath.isBlank()) {
+            LOGGER.info("Clicking age verification button with XPath: {}", ageVerificationXPath);
+            long clickStart = System.nanoTime();
+            tryToClickElementWhenAvailable(driver, ageVerificationXPath, timeout);
+            clickTime = System.nanoTime() - clickStart;
+        }
 
-            Object rawJSResult = javascriptExecutor.executeScript("""
-                    %s
-                    
-                    return convertHtmlToMinifiedTextByXPath(arguments[0]);""".formatted(JS_PROCESSING_SCRIPT),
-                    menuXPath);
+        // Wait for the menu to finish loading
+        pageReadiness.await(driver, webpageSettings);
 
-            var jsResult = processJSResult(rawJSResult);
+        Timer.builder("beerscanner.webdriver.page-load")
+                .description("Time spent loading a bar's webpage until it's ready to scrape")
+                .tag("blocking", blocking.tag())
+                .register(meterRegistry)
+                .record(System.nanoTime() - loadStart - clickTime, TimeUnit.NANOSECONDS);
 
-            if (!jsResult.success) {
-                throw new RuntimeException("JS processing error: " + jsResult.errorMessage);
-            }
+        var javascriptExecutor = (JavascriptExecutor) driver;
 
-            LOGGER.info("Extracted text data:\n{}", jsResult.data);
+        if (!cleanupScript.isBlank()) {
+            LOGGER.info("Cleaning up page with script: {}", cleanupScript);
+            javascriptExecutor.executeScript(cleanupScript);
+        }
 
-            return Optional.of(jsResult.data);
+        try {
+            // Ensure the menu is present
+            waitForElementPresence(driver, menuXPath, timeout);
         } catch (Exception e) {
-            LOGGER.error("An error occurred while processing the bar webpage", e);
-        } finally {
-            if (driver != null) {
-                driver.quit();
-            }
+            LOGGER.error("Menu element not found with XPath: {}", menuXPath);
+            throw new RuntimeException("Menu element not found", e);
         }
 
-        return Optional.empty();
-    }
+        Object rawJSResult = javascriptExecutor.executeScript("""
+                %s
+                
+                return convertHtmlToMinifiedTextByXPath(arguments[0]);""".formatted(JS_PROCESSING_SCRIPT),
+                menuXPath);
 
-    private WebElement waitForElement(WebDriver driver, String xpath) {
-        WebDriverWait wait = new WebDriverWait(driver, Duration.of(15, ChronoUnit.SECONDS));
-        return wait.until(ExpectedConditions.visibilityOfElementLocated(By.xpath(xpath)));
-    }
+        var jsResult = processJSResult(rawJSResult);
 
+        if (!jsResult.success) {
+            throw new RuntimeException("JS processing error: " + jsResult.errorMessage);
+        }
 
-    private WebElement waitForElementPresence(WebDriver driver, String xpath) {
-        WebDriverWait wait = new WebDriverWait(driver, Duration.of(15, ChronoUnit.SECONDS));
-        return wait.until(ExpectedConditions.presenceOfElementLocated(By.xpath(xpath)));
+        LOGGER.info("Extracted text data:\n{}", jsResult.data);
+
+        return jsResult.data;
     }
 
-    private void clickElementWhenAvailable(WebDriver driver, String xpath) {
-        WebDriverWait wait = new WebDriverWait(driver, Duration.of(15, ChronoUnit.SECONDS));
-        var element = wait.until(ExpectedConditions.elementToBeClickable(By.xpath(xpath)));
-        element.click();
+    private WebElement waitForElementPresence(WebDriver driver, String xpath, Duration timeout) {
+        WebDriverWait wait = new WebDriverWait(driver, timeout);
+        return wait.until(ExpectedConditions.presenceOfElementLocated(By.xpath(xpath)));
     }
 
-    private void tryToClickElementWhenAvailable(WebDriver driver, String xpath) {
+    private void tryToClickElementWhenAvailable(WebDriver driver, String xpath, Duration timeout) {
         try {
-            WebDriverWait wait = new WebDriverWait(driver, Duration.of(15, ChronoUnit.SECONDS));
+            WebDriverWait wait = new WebDriverWait(driver, timeout);
             var element = wait.until(ExpectedConditions.elementToBeClickable(By.xpath(xpath)));
             element.click();
         } catch (Exception e) {
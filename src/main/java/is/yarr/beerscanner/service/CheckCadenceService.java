@@ -0,0 +1,182 @@
+package is.yarr.beerscanner.service;
+
+import is.yarr.beerscanner.model.Bar;
+import is.yarr.beerscanner.model.BarCheck;
+import is.yarr.beerscanner.repository.BarCheckRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Service that decides how often each bar is checked, based on how often its menu has changed recently.
+ * Bars whose menus change often are checked close to the minimum interval, while bars that rarely change
+ * back off towards the maximum interval.
+ * <p>
+ * So that bars don't all come due at the same moment, each bar's checks are moved to its own deterministic slot within
+ * a repeating spread window. Bars with a known opening time that are checked at most daily are instead checked shortly
+ * before they open.
+ */
+@Service
+public class CheckCadenceService {
+
+    private final BarCheckRepository barCheckRepository;
+    private final Duration minInterval;
+    private final Duration maxInterval;
+    private final Duration spreadWindow;
+    private final Duration openingLead;
+
+    public CheckCadenceService(BarCheckRepository barCheckRepository,
+                               @Value("${app.scheduler.bar-check.min-interval}") Duration minInterval,
+                               @Value("${app.scheduler.bar-check.max-interval}") Duration maxInterval,
+                               @Value("${app.scheduler.bar-check.spread-window}") Duration spreadWindow,
+                               @Value("${app.scheduler.bar-check.opening-lead}") Duration openingLead) {
+        this.barCheckRepository = barCheckRepository;
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.spreadWindow = spreadWindow;
+        this.openingLead = openingLead;
+    }
+
+    /**
+     * Schedule the next check of a bar from its recent check history.
+     * The bar is not saved.
+     *
+     * @param bar the bar that was just checked
+     * @return the time the bar is next due
+     */
+    public LocalDateTime scheduleNextCheck(Bar bar) {
+        var now = LocalDateTime.now();
+        var recentChecks = barCheckRepository.findTop20ByBarOrderByCreatedAtDesc(bar);
+
+        var nextCheckAt = align(bar, now, computeInterval(recentChecks, now));
+        bar.setNextCheckAt(nextCheckAt);
+        return nextCheckAt;
+    }
+
+    /**
+     * Schedule a retry after a check failed before it could be recorded.
+     * The bar is not saved.
+     *
+     * @param bar the bar whose check failed
+     * @return the time the bar is next due
+     */
+    public LocalDateTime scheduleRetry(Bar bar) {
+        var nextCheckAt = spread(bar, LocalDateTime.now().plus(minInterval));
+        bar.setNextCheckAt(nextCheckAt);
+        return nextCheckAt;
+    }
+
+    /**
+     * Compute the interval until the next check.
+     * The change rate is estimated as the number of changes seen over the span covered by the recent checks, and the
+     * interval is the expected time between changes, clamped to the configured minimum and maximum. Since the span
+     * grows with every unchanged check, a bar that stops changing backs off geometrically until it reaches the maximum.
+     *
+     * @param recentChecks the most recent checks of the bar, in any order
+     * @param now          the current time
+     * @return the interval until the next check
+     */
+    Duration computeInterval(List<BarCheck> recentChecks, LocalDateTime now) {
+        var checks = recentChecks.stream()
+                .filter(check -> check.getCreatedAt() != null)
+                .filter(check -> check.getProcessingStatus() != BarCheck.ProcessingStatus.FAILED)
+                .filter(check -> check.getProcessingStatus() != BarCheck.ProcessingStatus.HOST_UNAVAILABLE)
+                .toList();
+
+        if (checks.isEmpty()) {
+            return minInterval;
+        }
+
+        var oldest = checks.stream()
+                .map(BarCheck::getCreatedAt)
+                .min(Comparator.naturalOrder())
+                .orElse(now);
+
+        long changes = checks.stream().filter(BarCheck::isHasChanges).count();
+        var span = Duration.between(oldest, now);
+        var interval = span.dividedBy(changes + 1);
+
+        if (interval.compareTo(minInterval) < 0) {
+            return minInterval;
+        }
+
+        if (interval.compareTo(maxInterval) > 0) {
+            return maxInterval;
+        }
+
+        return interval;
+    }
+
+    /**
+     * Align a bar's next check to its slot, after the interval has been computed.
+     * Bars with an opening time that are checked at most daily are checked at their last slot before opening that
+     * isn't later than the interval (to not reduce coverage), or otherwise the first one after it. All other bars are
+     * checked at their first spread slot after the interval.
+     *
+     * @param bar      the bar
+     * @param now      the current time
+     * @param interval the interval until the next check
+     * @return the time of the next check
+     */
+    LocalDateTime align(Bar bar, LocalDateTime now, Duration interval) {
+        var due = now.plus(interval);
+
+        if (bar.getOpensAt() == null || interval.compareTo(Duration.ofDays(1)) < 0) {
+            return spread(bar, due);
+        }
+
+        // Spread bars that open at the same time over the window before their lead time
+        LocalTime slotTime = bar.getOpensAt().minus(openingLead).minus(jitter(bar));
+        var earliest = now.plus(minInterval);
+
+        var slot = due.toLocalDate().atTime(slotTime);
+        if (slot.isAfter(due)) {
+            slot = slot.minusDays(1);
+        }
+
+        return slot.isBefore(earliest) ? slot.plusDays(1) : slot;
+    }
+
+    /**
+     * Move a time to the bar's first slot at or after it. Slots repeat every spread window, at a per-bar offset
+     * derived from the bar's ID, so bars that come due together are spread evenly over the window.
+     *
+     * @param bar the bar
+     * @param due the time the bar is due
+     * @return the time of the bar's slot, less than one spread window after the due time
+     */
+    LocalDateTime spread(Bar bar, LocalDateTime due) {
+        if (spreadWindow.isZero()) {
+            return due;
+        }
+
+        long windowSeconds = spreadWindow.toSeconds();
+        long dueSeconds = due.toEpochSecond(ZoneOffset.UTC);
+        long slotSeconds = dueSeconds - Math.floorMod(dueSeconds, windowSeconds) + jitter(bar).toSeconds();
+
+        if (slotSeconds < dueSeconds) {
+            slotSeconds += windowSeconds;
+        }
+
+        return LocalDateTime.ofEpochSecond(slotSeconds, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * @return the bar's deterministic offset within the spread window
+     */
+    private Duration jitter(Bar bar) {
+        if (spreadWindow.isZero() || bar.getId() == null) {
+            return Duration.ZERO;
+        }
+
+        // Fibonacci hashing, so consecutive IDs land far apart in the window
+        long hash = bar.getId() * 0x9E3779B97F4A7C15L;
+        return Duration.ofSeconds(Math.floorMod(hash ^ (hash >>> 32), spreadWindow.toSeconds()));
+    }
+}
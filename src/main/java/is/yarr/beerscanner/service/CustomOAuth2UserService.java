@@ -4,6 +4,7 @@ import is.yarr.beerscanner.model.Permission;
 import is.yarr.beerscanner.model.User;
 import is.yarr.beerscanner.repository.UserRepository;
 import is.yarr.beerscanner.security.UserPrincipal;
+import is.yarr.beerscanner.service.fetch.HttpFetchClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -17,8 +18,6 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.io.IOException;
-import java.net.URI;
-import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
@@ -35,12 +34,14 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
     private static final Logger LOGGER = LoggerFactory.getLogger(CustomOAuth2UserService.class);
 
     private final UserRepository userRepository;
+    private final HttpFetchClient httpFetchClient;
 
     @Value("${app.data-dir}")
     private String dataDir;
 
-    public CustomOAuth2UserService(UserRepository userRepository) {
+    public CustomOAuth2UserService(UserRepository userRepository, HttpFetchClient httpFetchClient) {
         this.userRepository = userRepository;
+        this.httpFetchClient = httpFetchClient;
     }
 
     /**
@@ -128,11 +129,13 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
 
         var destinationFile = profilePicturesDir.resolve("%d.jpg".formatted(user.getId()));
 
-        try (var in = new URI(pictureUrl).toURL().openStream()) {
-            Files.copy(in, destinationFile, StandardCopyOption.REPLACE_EXISTING);
+        try (var response = httpFetchClient.get(pictureUrl)) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Profile picture request failed with status " + response.status());
+            }
+
+            Files.copy(response.body(), destinationFile, StandardCopyOption.REPLACE_EXISTING);
             LOGGER.debug("Successfully downloaded profile picture for user {} to {}", user.getId(), destinationFile);
-        } catch (URISyntaxException e) {
-            throw new RuntimeException(e);
         }
 
         user.setProfilePicture("%s/api/v1/users/profile-picture/%d".formatted(baseUrl, user.getId()));
@@ -187,6 +187,7 @@ public class DTOMapperService {
                 .menuUrl(bar.getMenuUrl())
                 .menuXPath(bar.getMenuXPath())
                 .lastMenuHash(bar.getLastMenuHash())
+                .opensAt(bar.getOpensAt())
                 .isApproved(bar.isApproved())
                 .createdAt(bar.getCreatedAt())
                 .updatedAt(bar.getUpdatedAt());
@@ -196,7 +197,11 @@ public class DTOMapperService {
             builder.menuComponentXPath(webpageSettings.getMenuComponentXPath())
                     .ageVerificationXPath(webpageSettings.getAgeVerificationXPath())
                     .cleanupScript(webpageSettings.getCleanupScript())
-                    .processAsText(webpageSettings.isProcessAsText());
+                    .processAsText(webpageSettings.isProcessAsText())
+                    .readinessStrategy(webpageSettings.getReadinessStrategy())
+                    .readinessTimeoutSeconds(webpageSettings.getReadinessTimeoutSeconds())
+                    .blockResources(webpageSettings.getBlockResources())
+                    .unblockedResourcePatterns(webpageSettings.getUnblockedResourcePatterns());
         }
 
         return builder.build();
@@ -296,6 +301,7 @@ public class DTOMapperService {
                 .createdAt(barCheck.getCreatedAt())
                 .beersAdded(toBeerDTOSet(barCheck.getBeersAdded()))
                 .beersRemoved(toBeerDTOSet(barCheck.getBeersRemoved()))
+                .extractionMode(barCheck.getExtractionMode())
                 .build();
     }
 
@@ -0,0 +1,128 @@
+package is.yarr.beerscanner.service;
+
+import is.yarr.beerscanner.model.Beer;
+import is.yarr.beerscanner.service.menu.LineDiff;
+import is.yarr.beerscanner.service.openai.BeerDeltaOutput;
+import is.yarr.beerscanner.service.openai.BeerListOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Service that extracts the beers of a text menu from only the lines that changed since the previous check.
+ * Most menu changes are a tap or two being swapped, so sending the previous beers and the changed lines is much
+ * smaller than the whole menu. Menus that changed too much, or that can't be diffed, are left to full extraction.
+ */
+@Service
+public class DeltaExtractionService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeltaExtractionService.class);
+
+    private final OpenAIService openAIService;
+    private final boolean enabled;
+    private final double maxChangedRatio;
+
+    public DeltaExtractionService(OpenAIService openAIService,
+                                  @Value("${app.menu.delta.enabled}") boolean enabled,
+                                  @Value("${app.menu.delta.max-changed-ratio}") double maxChangedRatio) {
+        this.openAIService = openAIService;
+        this.enabled = enabled;
+        this.maxChangedRatio = maxChangedRatio;
+    }
+
+    /**
+     * Extract the beers of a menu from the changes since its previous version.
+     *
+     * @param previousText the text of the previous menu, which the previous beers were extracted from
+     * @param currentText the text of the current menu
+     * @param previousBeers the beers extracted from the previous menu
+     * @param barInstructions additional instructions for the AI, specific to the bar
+     * @return the beers on the current menu, or an empty optional if the whole menu should be extracted instead
+     */
+    public Optional<List<BeerListOutput.BeerOutput>> extractBeers(String previousText, String currentText, Collection<Beer> previousBeers, String barInstructions) {
+        if (!enabled || previousBeers.isEmpty()) {
+            return Optional.empty();
+        }
+
+        LineDiff diff;
+        try {
+            diff = LineDiff.of(LineDiff.lines(previousText), LineDiff.lines(currentText));
+        } catch (IllegalArgumentException e) {
+            LOGGER.debug("Not extracting menu changes: {}", e.getMessage());
+            return Optional.empty();
+        }
+
+        var beers = previousBeers.stream().map(DeltaExtractionService::toOutput).toList();
+
+        if (diff.isEmpty()) {
+            // Only dates or whitespace changed
+            LOGGER.debug("Menu lines are unchanged, keeping the previous {} beers", beers.size());
+            return Optional.of(beers);
+        }
+
+        if (diff.addedRatio() > maxChangedRatio) {
+            LOGGER.debug("Too much of the menu changed to extract changes: {}", diff);
+            return Optional.empty();
+        }
+
+        LOGGER.info("Extracting menu changes: {}", diff);
+        var delta = openAIService.extractBeerChanges(beers, diff.removed(), diff.added(), barInstructions);
+
+        return Optional.of(apply(beers, delta));
+    }
+
+    /**
+     * Apply extracted changes to the previous beers.
+     *
+     * @param previousBeers the previous beers
+     * @param delta the extracted changes
+     * @return the current beers
+     */
+    static List<BeerListOutput.BeerOutput> apply(List<BeerListOutput.BeerOutput> previousBeers, BeerDeltaOutput delta) {
+        var beers = new ArrayList<>(previousBeers);
+
+        if (delta.removed != null) {
+            for (var removed : delta.removed) {
+                beers.removeIf(beer -> matches(beer, removed.name, removed.brewery));
+            }
+        }
+
+        if (delta.added != null) {
+            for (var added : delta.added) {
+                if (beers.stream().noneMatch(beer -> matches(beer, added.name, added.brewery))) {
+                    beers.add(added);
+                }
+            }
+        }
+
+        return beers;
+    }
+
+    /**
+     * Check if a beer has a name, and a brewery if one is given, ignoring case.
+     */
+    private static boolean matches(BeerListOutput.BeerOutput beer, String name, String brewery) {
+        if (name == null || !name.strip().equalsIgnoreCase(Objects.requireNonNullElse(beer.name, "").strip())) {
+            return false;
+        }
+
+        return brewery == null || beer.brewery == null || brewery.strip().equalsIgnoreCase(beer.brewery.strip());
+    }
+
+    private static BeerListOutput.BeerOutput toOutput(Beer beer) {
+        var output = new BeerListOutput.BeerOutput();
+        output.name = beer.getName();
+        output.brewery = beer.getBrewery();
+        output.type = beer.getType();
+        output.abv = Objects.requireNonNullElse(beer.getAbv(), 0.0);
+        output.description = beer.getDescription();
+        return output;
+    }
+}
@@ -6,13 +6,17 @@ import com.openai.models.ChatModel;
 import com.openai.models.responses.ResponseCreateParams;
 import com.openai.models.responses.ResponseInputFile;
 import com.openai.models.responses.ResponseInputItem;
+import is.yarr.beerscanner.service.openai.BeerDeltaOutput;
 import is.yarr.beerscanner.service.openai.BeerListOutput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Service for OpenAI API operations.
@@ -22,6 +26,15 @@ public class OpenAIService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OpenAIService.class);
 
+    // How each beer should be described, shared by full and delta extraction
+    private static final String BEER_PROPERTIES_INSTRUCTIONS = """
+            Each beer should have the following properties: name, brewery, type, abv (as a decimal, e.g., 5.3 for 5.3%), description (if found, be sure this is ONLY the description).
+            If any property is not available, use null.
+            If the beer name and brewery name are 100% indistinguishable from each other, put it as just the beer name.
+            Use only official beer types (e.g. IPA, Lager, DIPA).
+            
+            """;
+
     private final OpenAIClient client;
 
     public OpenAIService(@Value("${openai.api.key}") String apiKey) {
@@ -31,11 +44,11 @@ public class OpenAIService {
     /**
      * Extract beers from menu content.
      *
-     * @param menuContent the base64 encoded PDF content of the bar menu. If the contentType is "text/plain", this should be the plain text content of the menu.
+     * @param menuContent the raw content of the bar menu (a PDF or image). If the contentType is "text/plain", this should be the UTF-8 text content of the menu.
      * @param barInstructions additional instructions for the AI, specific to the bar
      * @return a list of beers
      */
-    public List<BeerListOutput.BeerOutput> extractBeersFromMenu(String menuContent, String contentType, String barInstructions) {
+    public List<BeerListOutput.BeerOutput> extractBeersFromMenu(byte[] menuContent, String contentType, String barInstructions) {
         try {
             if (barInstructions == null || barInstructions.isEmpty()) {
                 barInstructions = "";
@@ -44,7 +57,7 @@ public class OpenAIService {
             var extension = contentType.split("/")[1];
 
             System.out.println("Extracting beers from menu with content type: " + contentType + " and extension: " + extension);
-            System.out.println("The size of the menu is: " + menuContent.length());
+            System.out.println("The size of the menu is: " + menuContent.length);
 
             ResponseInputItem messageInputItem;
 
@@ -55,16 +68,17 @@ public class OpenAIService {
                                 ```
                                 %s
                                 ```
-                                """.formatted(menuContent);
+                                """.formatted(new String(menuContent, StandardCharsets.UTF_8));
 
                 messageInputItem = ResponseInputItem.ofMessage(ResponseInputItem.Message.builder()
                         .role(ResponseInputItem.Message.Role.USER)
                         .addInputTextContent(beerExtractionMessage)
                         .build());
             } else {
+                // Only encoded here, right before it's sent
                 var inputFile = ResponseInputFile.builder()
                         .filename("bar-menu.%s".formatted(extension))
-                        .fileData("data:%s;base64,%s".formatted(contentType, menuContent))
+                        .fileData("data:%s;base64,%s".formatted(contentType, Base64.getEncoder().encodeToString(menuContent)))
                         .build();
 
                 messageInputItem = ResponseInputItem.ofMessage(ResponseInputItem.Message.builder()
@@ -81,12 +95,7 @@ public class OpenAIService {
                     .instructions("""
                                     You are a helpful assistant that extracts beer information from bar menus and only returns JSON.
                                     Extract all draft beers and ciders from the menu and return them as a JSON array.
-                                    Each beer should have the following properties: name, brewery, type, abv (as a decimal, e.g., 5.3 for 5.3%), description (if found, be sure this is ONLY the description).
-                                    If any property is not available, use null.
-                                    If the beer name and brewery name are 100% indistinguishable from each other, put it as just the beer name.
-                                    Use only official beer types (e.g. IPA, Lager, DIPA).
-                                    
-                                    """ + barInstructions)
+                                    """ + BEER_PROPERTIES_INSTRUCTIONS + barInstructions)
                     .inputOfResponse(List.of(messageInputItem))
                     .build();
 
@@ -109,4 +118,80 @@ public class OpenAIService {
             throw new RuntimeException("Error extracting beers from menu: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Extract the changes to a text menu's beers from only the lines of the menu that changed since the previous
+     * check, which is much smaller than the whole menu when a bar only swaps a few taps.
+     *
+     * @param previousBeers the beers extracted from the previous version of the menu
+     * @param removedLines the lines of the previous menu that are no longer on the menu
+     * @param addedLines the lines of the current menu that weren't on the previous one
+     * @param barInstructions additional instructions for the AI, specific to the bar
+     * @return the beers added to and removed from the previous beers
+     */
+    public BeerDeltaOutput extractBeerChanges(List<BeerListOutput.BeerOutput> previousBeers, List<String> removedLines, List<String> addedLines, String barInstructions) {
+        try {
+            if (barInstructions == null || barInstructions.isEmpty()) {
+                barInstructions = "";
+            }
+
+            var previousBeerList = previousBeers.stream()
+                    .map(beer -> beer.brewery == null ? beer.name : "%s (%s)".formatted(beer.name, beer.brewery))
+                    .collect(Collectors.joining("\n"));
+
+            var changesMessage = """
+                    The beers on the previous version of the menu were:
+                    
+                    ```
+                    %s
+                    ```
+                    
+                    These lines were removed from the menu:
+                    
+                    ```
+                    %s
+                    ```
+                    
+                    These lines were added to the menu:
+                    
+                    ```
+                    %s
+                    ```
+                    """.formatted(previousBeerList, String.join("\n", removedLines), String.join("\n", addedLines));
+
+            var messageInputItem = ResponseInputItem.ofMessage(ResponseInputItem.Message.builder()
+                    .role(ResponseInputItem.Message.Role.USER)
+                    .addInputTextContent(changesMessage)
+                    .build());
+
+            var params = ResponseCreateParams.builder()
+                    .model(ChatModel.GPT_4_1_MINI)
+                    .maxOutputTokens(2048)
+                    .text(BeerDeltaOutput.class)
+                    .instructions("""
+                                    You are a helpful assistant that tracks changes to the beers on bar menus and only returns JSON.
+                                    You are given the beers on the previous version of a menu and the lines of the menu that changed.
+                                    Return the draft beers and ciders that the added lines put on the menu and aren't already on the previous list as "added".
+                                    Return the beers on the previous list that the removed lines took off the menu as "removed", with their name and brewery exactly as on the previous list.
+                                    A beer whose line only changed (e.g. a new price) is neither added nor removed.
+                                    """ + BEER_PROPERTIES_INSTRUCTIONS + barInstructions)
+                    .inputOfResponse(List.of(messageInputItem))
+                    .build();
+
+            var deltaOutputs = client.responses().create(params).output().stream()
+                    .flatMap(item -> item.message().stream())
+                    .flatMap(message -> message.content().stream())
+                    .flatMap(content -> content.outputText().stream())
+                    .toList();
+
+            if (deltaOutputs.size() != 1) {
+                LOGGER.error("Expected exactly one beer delta output, but found: {}", deltaOutputs.size());
+            }
+
+            return deltaOutputs.getFirst();
+        } catch (Exception e) {
+            LOGGER.error("Error extracting beer changes from menu", e);
+            throw new RuntimeException("Error extracting beer changes from menu: " + e.getMessage(), e);
+        }
+    }
 }
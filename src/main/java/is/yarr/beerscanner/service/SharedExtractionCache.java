@@ -0,0 +1,122 @@
+package is.yarr.beerscanner.service;
+
+import is.yarr.beerscanner.model.Bar;
+import is.yarr.beerscanner.model.BarCheck;
+import is.yarr.beerscanner.service.menu.MenuDigest;
+import is.yarr.beerscanner.service.openai.BeerListOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares recently extracted beers between bars whose checks found the same menu, with the same AI instructions, so
+ * bars sharing a menu source (such as locations of the same group) only have their menu extracted once.
+ * An extraction that's still running is waited for rather than started again. A bar's own earlier extractions
+ * aren't reused.
+ */
+@Component
+public class SharedExtractionCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedExtractionCache.class);
+
+    private final Duration ttl;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public SharedExtractionCache(@Value("${app.menu.shared-extraction-ttl}") Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    private record Entry(CompletableFuture<List<BeerListOutput.BeerOutput>> beers, Long barId, LocalDateTime createdAt) {
+    }
+
+    /**
+     * Extracts the beers of a check's menu.
+     */
+    @FunctionalInterface
+    public interface Extraction {
+        List<BeerListOutput.BeerOutput> extract() throws IOException;
+    }
+
+    /**
+     * The result of {@link #extract(BarCheck, Bar, Extraction)}.
+     *
+     * @param beers  the extracted beers
+     * @param shared if the beers were extracted for another bar
+     */
+    public record Result(List<BeerListOutput.BeerOutput> beers, boolean shared) {
+    }
+
+    /**
+     * Extract the beers of a check's menu, unless the same menu was recently extracted with the same instructions.
+     * Failed extractions aren't shared, so the next check with the menu extracts it again.
+     *
+     * @param check the check
+     * @param bar the checked bar
+     * @param extraction extracts the beers, if they haven't been
+     * @return the beers
+     * @throws IOException if the extraction failed to load the menu
+     */
+    public Result extract(BarCheck check, Bar bar, Extraction extraction) throws IOException {
+        var menuHash = Optional.ofNullable(check.getSemanticHash()).orElse(check.getMenuHash());
+        if (menuHash == null) {
+            return new Result(extraction.extract(), false);
+        }
+
+        removeExpired();
+
+        var key = key(menuHash, check.getContentType(), bar.getAiInstructions());
+        var entry = new Entry(new CompletableFuture<>(), bar.getId(), LocalDateTime.now());
+        var sharedEntry = entries.putIfAbsent(key, entry);
+
+        // A bar's own earlier extraction isn't reused, since checking it again (e.g. a forced check) means the
+        // extraction should be redone
+        if (sharedEntry != null && Objects.equals(sharedEntry.barId(), bar.getId()) && sharedEntry.beers().isDone()
+                && entries.replace(key, sharedEntry, entry)) {
+            sharedEntry = null;
+        }
+
+        if (sharedEntry == null) {
+            try {
+                var beers = extraction.extract();
+                entry.beers().complete(beers);
+                return new Result(beers, false);
+            } catch (IOException | RuntimeException e) {
+                entries.remove(key, entry);
+                entry.beers().completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        try {
+            var beers = sharedEntry.beers().join();
+            LOGGER.info("Sharing the beers extracted from the same menu for another bar with bar {}", bar.getName());
+            return new Result(beers, true);
+        } catch (CompletionException e) {
+            // The extraction this check waited for failed, so try it for this check
+            return extract(check, bar, extraction);
+        }
+    }
+
+    static String key(String menuHash, String contentType, String aiInstructions) {
+        var key = String.join("\n", menuHash, Objects.toString(contentType, ""), Objects.toString(aiInstructions, "").strip());
+        return MenuDigest.of(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void removeExpired() {
+        var cutoff = LocalDateTime.now().minus(ttl);
+        entries.values().removeIf(entry -> entry.beers().isDone() && entry.createdAt().isBefore(cutoff));
+    }
+}
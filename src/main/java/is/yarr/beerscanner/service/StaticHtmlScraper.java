@@ -0,0 +1,135 @@
+package is.yarr.beerscanner.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Scrapes the text of a menu from server-rendered HTML, without a browser.
+ * Text is extracted the same way as {@code extractTextRecursively} in {@link BarWebpageScraperService}'s script, and
+ * serialized the same way (a JSON array of each matched element's text), so a menu's hash doesn't depend on whether
+ * it was scraped with or without a browser.
+ */
+@Component
+public class StaticHtmlScraper {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StaticHtmlScraper.class);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    // The same as JavaScript's \s, which includes non-breaking and other Unicode spaces
+    private static final Pattern WHITESPACE_RUN = Pattern.compile("(?U)\\s\\s+");
+    private static final Pattern SURROUNDING_WHITESPACE = Pattern.compile("(?U)^\\s+|\\s+$");
+
+    // Unrendered client-side templates, such as {{ beer.name }} or ${beer.name}
+    private static final Pattern TEMPLATE_PLACEHOLDER = Pattern.compile("\\{\\{.*?}}|\\$\\{.*?}");
+
+    private final int minTextCharacters;
+
+    public StaticHtmlScraper(@Value("${app.scraper.static.min-text-characters}") int minTextCharacters) {
+        this.minTextCharacters = minTextCharacters;
+    }
+
+    /**
+     * Scrape the text of the elements matching an XPath from an HTML page.
+     *
+     * @param html the page
+     * @param baseUri the URL of the page
+     * @param xpath the XPath of the menu
+     * @return the text as a JSON array, or an empty optional if the menu looks like it's rendered with JavaScript
+     * @throws IOException if the page can't be read
+     */
+    public Optional<String> scrape(InputStream html, String baseUri, String xpath) throws IOException {
+        var document = Jsoup.parse(html, null, baseUri);
+
+        var texts = new ArrayList<String>();
+        for (var element : document.selectXpath(xpath)) {
+            var text = extractTextRecursively(element);
+            if (!text.isEmpty()) {
+                texts.add(text);
+            }
+        }
+
+        if (!looksRendered(texts)) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(OBJECT_MAPPER.writeValueAsString(texts));
+        } catch (JsonProcessingException e) {
+            throw new IOException("Failed to serialize menu text", e);
+        }
+    }
+
+    /**
+     * Check if the text of a menu looks like the rendered menu, rather than a placeholder that JavaScript fills in.
+     *
+     * @param texts the text of each matched element
+     * @return if the text has enough characters and no unrendered templates
+     */
+    boolean looksRendered(List<String> texts) {
+        int characters = texts.stream().mapToInt(String::length).sum();
+        if (characters < minTextCharacters) {
+            LOGGER.debug("Static menu text is too short ({} characters)", characters);
+            return false;
+        }
+
+        if (texts.stream().anyMatch(text -> TEMPLATE_PLACEHOLDER.matcher(text).find())) {
+            LOGGER.debug("Static menu text has unrendered templates");
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Extract and concatenate the text of a node and its descendants, skipping scripts and styles and collapsing
+     * whitespace, with the text of child nodes joined by a space.
+     *
+     * @param node the node
+     * @return the text
+     */
+    static String extractTextRecursively(Node node) {
+        if (node instanceof TextNode textNode) {
+            return trim(WHITESPACE_RUN.matcher(textNode.getWholeText()).replaceAll(" "));
+        }
+
+        if (node instanceof Element element) {
+            var tagName = element.normalName();
+            if (tagName.equals("script") || tagName.equals("style")) {
+                return "";
+            }
+
+            var textSegments = new ArrayList<String>();
+            for (var childNode : element.childNodes()) {
+                var childText = extractTextRecursively(childNode);
+                if (!childText.isEmpty()) {
+                    textSegments.add(childText);
+                }
+            }
+
+            return trim(String.join(" ", textSegments));
+        }
+
+        // Comments, data nodes and the like
+        return "";
+    }
+
+    private static String trim(String text) {
+        return SURROUNDING_WHITESPACE.matcher(text).replaceAll("");
+    }
+}
@@ -0,0 +1,82 @@
+package is.yarr.beerscanner.service.fetch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.util.Optional;
+
+/**
+ * A response from {@link HttpFetchClient}, with its (decoded) body left unread.
+ * Closing the response closes the body and releases the connection.
+ */
+public class FetchResponse implements Closeable {
+
+    private final URI uri;
+    private final int status;
+    private final HttpHeaders headers;
+    private final InputStream body;
+    private final Runnable onClose;
+
+    private boolean closed;
+
+    FetchResponse(URI uri, int status, HttpHeaders headers, InputStream body, Runnable onClose) {
+        this.uri = uri;
+        this.status = status;
+        this.headers = headers;
+        this.body = body;
+        this.onClose = onClose;
+    }
+
+    /**
+     * @return the final URI of the response, after any redirects
+     */
+    public URI uri() {
+        return uri;
+    }
+
+    public int status() {
+        return status;
+    }
+
+    public boolean isSuccessful() {
+        return status >= 200 && status < 300;
+    }
+
+    public Optional<String> header(String name) {
+        return headers.firstValue(name);
+    }
+
+    /**
+     * @return the content type header, or an empty string if there is none
+     */
+    public String contentType() {
+        return header("Content-Type").orElse("");
+    }
+
+    /**
+     * @return the content length header, or {@code -1} if there is none
+     */
+    public long contentLength() {
+        return headers.firstValueAsLong("Content-Length").orElse(-1);
+    }
+
+    public InputStream body() {
+        return body;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        try {
+            body.close();
+        } finally {
+            onClose.run();
+        }
+    }
+}
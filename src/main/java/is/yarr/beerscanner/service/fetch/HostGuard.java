@@ -0,0 +1,174 @@
+package is.yarr.beerscanner.service.fetch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-host politeness for menu fetches: a token bucket that limits how fast requests are sent to each host, and a
+ * circuit breaker that stops sending requests to a host after repeated failures.
+ * <p>
+ * Once a host fails {@code failure-threshold} times in a row its circuit opens, and requests to it fail immediately
+ * with a {@link HostUnavailableException} for {@code open-duration}. After that a single trial request is let through;
+ * if it succeeds the circuit closes, and if it fails the circuit opens again.
+ */
+@Component
+public class HostGuard {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HostGuard.class);
+
+    public static final String UNKNOWN_HOST = "unknown";
+
+    private final double requestsPerSecond;
+    private final int burst;
+    private final int failureThreshold;
+    private final Duration openDuration;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    public HostGuard(@Value("${app.http.host.requests-per-second}") double requestsPerSecond,
+                     @Value("${app.http.host.burst}") int burst,
+                     @Value("${app.http.host.failure-threshold}") int failureThreshold,
+                     @Value("${app.http.host.open-duration}") Duration openDuration) {
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Wait until a request may be sent to a host.
+     * Every successful call must be followed by {@link #recordSuccess(String)} or {@link #recordFailure(String)}.
+     *
+     * @param host the host, as returned by {@link #hostOf(String)}
+     * @throws HostUnavailableException if the host's circuit is open
+     * @throws IOException if interrupted while waiting for the rate limit
+     */
+    public void acquire(String host) throws IOException {
+        circuits.computeIfAbsent(host, key -> new Circuit()).tryPass(host);
+
+        long waitNanos = buckets.computeIfAbsent(host, key -> new TokenBucket()).reserve();
+        if (waitNanos <= 0) {
+            return;
+        }
+
+        LOGGER.debug("Rate limiting request to {} for {} ms", host, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rate limiting request to " + host, e);
+        }
+    }
+
+    /**
+     * Record that the host answered, closing its circuit.
+     *
+     * @param host the host
+     */
+    public void recordSuccess(String host) {
+        circuits.computeIfAbsent(host, key -> new Circuit()).onSuccess(host);
+    }
+
+    /**
+     * Record that a request to the host failed (a connection error, timeout or server error), opening its circuit if
+     * it has failed too many times in a row.
+     *
+     * @param host the host
+     */
+    public void recordFailure(String host) {
+        circuits.computeIfAbsent(host, key -> new Circuit()).onFailure(host);
+    }
+
+    /**
+     * Get the host of a URL, used as the key for rate limiting and circuit breaking.
+     *
+     * @param url the URL
+     * @return the lowercase host, or {@code "unknown"} if the URL has none
+     */
+    public static String hostOf(String url) {
+        if (url == null) {
+            return UNKNOWN_HOST;
+        }
+
+        try {
+            var host = URI.create(url.trim()).getHost();
+            return host == null ? UNKNOWN_HOST : host.toLowerCase(Locale.ROOT);
+        } catch (IllegalArgumentException e) {
+            return UNKNOWN_HOST;
+        }
+    }
+
+    private class TokenBucket {
+        private double tokens = burst;
+        private long lastRefill = System.nanoTime();
+
+        /**
+         * Take a token, going into debt if there are none so concurrent callers are spaced out in arrival order.
+         *
+         * @return how long the caller must wait before sending its request, in nanoseconds
+         */
+        synchronized long reserve() {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - lastRefill) / 1e9 * requestsPerSecond);
+            lastRefill = now;
+
+            tokens -= 1;
+            return tokens >= 0 ? 0 : (long) (-tokens / requestsPerSecond * 1e9);
+        }
+    }
+
+    private class Circuit {
+        private int consecutiveFailures;
+        private Instant openUntil;
+        private boolean trialInFlight;
+
+        synchronized void tryPass(String host) throws HostUnavailableException {
+            if (openUntil == null) {
+                return;
+            }
+
+            var now = Instant.now();
+            if (now.isBefore(openUntil)) {
+                throw new HostUnavailableException(host, openUntil);
+            }
+
+            // Let this request through as a trial, and keep the others out until it reports back.
+            // If it never does, another trial is let through once this period passes.
+            LOGGER.info("Sending trial request to {} after its circuit was open", host);
+            openUntil = now.plus(openDuration);
+            trialInFlight = true;
+        }
+
+        synchronized void onSuccess(String host) {
+            if (openUntil != null) {
+                LOGGER.info("Host {} is available again, closing its circuit", host);
+            }
+
+            consecutiveFailures = 0;
+            openUntil = null;
+            trialInFlight = false;
+        }
+
+        synchronized void onFailure(String host) {
+            consecutiveFailures++;
+
+            if (trialInFlight || consecutiveFailures >= failureThreshold) {
+                openUntil = Instant.now().plus(openDuration);
+                trialInFlight = false;
+                LOGGER.warn("Host {} failed {} times in a row, opening its circuit until {}", host, consecutiveFailures, openUntil);
+            }
+        }
+    }
+}
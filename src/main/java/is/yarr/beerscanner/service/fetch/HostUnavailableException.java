@@ -0,0 +1,30 @@
+package is.yarr.beerscanner.service.fetch;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Thrown by {@link HostGuard} when a host's circuit is open, so the request fails immediately instead of being sent.
+ */
+public class HostUnavailableException extends IOException {
+
+    private final String host;
+    private final Instant retryAt;
+
+    public HostUnavailableException(String host, Instant retryAt) {
+        super("Host %s is unavailable after repeated failures, not retrying before %s".formatted(host, retryAt));
+        this.host = host;
+        this.retryAt = retryAt;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * @return the earliest time a request to the host will be let through again
+     */
+    public Instant getRetryAt() {
+        return retryAt;
+    }
+}
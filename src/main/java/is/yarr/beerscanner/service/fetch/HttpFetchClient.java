@@ -0,0 +1,182 @@
+package is.yarr.beerscanner.service.fetch;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Shared HTTP client for all outbound fetches (menus, menu landing pages and profile pictures).
+ * Connections are pooled and kept alive by the underlying {@link HttpClient}, HTTP/2 is negotiated where supported,
+ * redirects are followed (except from HTTPS to HTTP), and gzip/deflate responses are decoded transparently.
+ * Every request is bounded by a connect timeout, a timeout for the response headers and a timeout for reading the
+ * whole body, and its duration is recorded in the {@code beerscanner.fetch} timer.
+ */
+@Component
+public class HttpFetchClient {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpFetchClient.class);
+
+    private final HttpClient client;
+    private final Duration responseTimeout;
+    private final Duration readTimeout;
+    private final String userAgent;
+    private final MeterRegistry meterRegistry;
+
+    // Closes bodies that take longer than the read timeout, since HttpClient has no timeout for reading the body
+    private final ScheduledExecutorService readTimeoutWatchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "http-fetch-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public HttpFetchClient(@Value("${app.http.connect-timeout}") Duration connectTimeout,
+                           @Value("${app.http.response-timeout}") Duration responseTimeout,
+                           @Value("${app.http.read-timeout}") Duration readTimeout,
+                           @Value("${app.http.user-agent}") String userAgent,
+                           MeterRegistry meterRegistry) {
+        this.responseTimeout = responseTimeout;
+        this.readTimeout = readTimeout;
+        this.userAgent = userAgent;
+        this.meterRegistry = meterRegistry;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(connectTimeout)
+                .build();
+    }
+
+    /**
+     * Send a GET request.
+     * The returned response must be closed, which releases the connection and records the request's timing.
+     *
+     * @param url the URL
+     * @return the response, with its body left unread
+     * @throws IOException if the request fails or times out
+     */
+    public FetchResponse get(String url) throws IOException {
+        return get(url, Map.of());
+    }
+
+    /**
+     * Send a GET request with additional headers.
+     * The returned response must be closed, which releases the connection and records the request's timing.
+     *
+     * @param url the URL
+     * @param headers additional request headers
+     * @return the response, with its body left unread
+     * @throws IOException if the request fails or times out
+     */
+    public FetchResponse get(String url, Map<String, String> headers) throws IOException {
+        var uri = URI.create(url.trim());
+        var requestBuilder = HttpRequest.newBuilder(uri)
+                .GET()
+                .timeout(responseTimeout)
+                .header("User-Agent", userAgent)
+                .header("Accept-Encoding", "gzip, deflate");
+        headers.forEach(requestBuilder::header);
+
+        long startTime = System.nanoTime();
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(requestBuilder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            recordTiming(uri, "interrupted", System.nanoTime() - startTime);
+            throw new IOException("Request to %s was interrupted".formatted(url), e);
+        } catch (IOException e) {
+            recordTiming(uri, "error", System.nanoTime() - startTime);
+            throw e;
+        }
+
+        long headersNanos = System.nanoTime() - startTime;
+        var rawBody = response.body();
+        var watchdog = readTimeoutWatchdog.schedule(() -> closeQuietly(rawBody, uri), readTimeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        InputStream body;
+        try {
+            body = decode(response.statusCode(), rawBody, response.headers().firstValue("Content-Encoding").orElse(""));
+        } catch (IOException e) {
+            watchdog.cancel(false);
+            closeQuietly(rawBody, uri);
+            recordTiming(uri, "error", System.nanoTime() - startTime);
+            throw e;
+        }
+
+        return new FetchResponse(response.uri(), response.statusCode(), response.headers(), body, () -> {
+            watchdog.cancel(false);
+            long totalNanos = System.nanoTime() - startTime;
+            recordTiming(uri, String.valueOf(response.statusCode()), totalNanos);
+            LOGGER.debug("GET {} -> {} (headers after {} ms, closed after {} ms)", uri, response.statusCode(),
+                    TimeUnit.NANOSECONDS.toMillis(headersNanos), TimeUnit.NANOSECONDS.toMillis(totalNanos));
+        });
+    }
+
+    /**
+     * Decode a response body according to its {@code Content-Encoding}.
+     * Responses without a body (such as 304s) are often sent with the encoding of the body they would have had, so
+     * empty bodies are left as they are instead of failing to read a gzip header.
+     *
+     * @param status the response status
+     * @param body the raw body
+     * @param contentEncoding the response's {@code Content-Encoding}, or an empty string
+     * @return the decoded body
+     * @throws IOException if the body can't be read, or its gzip header is invalid
+     */
+    static InputStream decode(int status, InputStream body, String contentEncoding) throws IOException {
+        var encoding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+        if (status == 204 || status == 304 || !(encoding.equals("gzip") || encoding.equals("x-gzip") || encoding.equals("deflate"))) {
+            return body;
+        }
+
+        var pushbackBody = new PushbackInputStream(body);
+        int firstByte = pushbackBody.read();
+        if (firstByte == -1) {
+            return pushbackBody;
+        }
+        pushbackBody.unread(firstByte);
+
+        return encoding.equals("deflate") ? new InflaterInputStream(pushbackBody) : new GZIPInputStream(pushbackBody);
+    }
+
+    private void recordTiming(URI uri, String status, long nanos) {
+        Timer.builder("beerscanner.fetch")
+                .description("Outbound HTTP fetches, from sending the request to closing the response")
+                .tag("host", uri.getHost() == null ? "unknown" : uri.getHost().toLowerCase(Locale.ROOT))
+                .tag("status", status)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static void closeQuietly(InputStream body, URI uri) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            LOGGER.debug("Error closing response body from {}", uri, e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        readTimeoutWatchdog.shutdownNow();
+    }
+}
@@ -0,0 +1,64 @@
+package is.yarr.beerscanner.service.menu;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Normalization of menu text for change detection: dates, times and weekdays are replaced with placeholders and
+ * whitespace is collapsed, so "last updated" lines and layout changes don't count as changes.
+ */
+final class CanonicalText {
+
+    // Whole month names and abbreviations only, so beer names like "Octoberfest" or "Mayhem" aren't taken for dates
+    private static final String MONTH = "(?:jan(?:uary)?|feb(?:ruary)?|mar(?:ch)?|apr(?:il)?|may|june?|july?|aug(?:ust)?"
+            + "|sep(?:t(?:ember)?)?|oct(?:ober)?|nov(?:ember)?|dec(?:ember)?)\\b\\.?";
+
+    private static final String MONTH_NUMBER = "(?:0?[1-9]|1[0-2])";
+    private static final String DAY_NUMBER = "(?:0?[1-9]|[12]\\d|3[01])";
+
+    private static final List<Pattern> DATE_PATTERNS = List.of(
+            // 2025-06-01
+            Pattern.compile("\\b\\d{4}-\\d{1,2}-\\d{1,2}\\b"),
+            // 6/1/2025, 01.06.2025 (with a four digit year, so lists of sizes like 12/16/20 aren't taken for dates)
+            Pattern.compile("\\b(?:" + MONTH_NUMBER + "([/.-])" + DAY_NUMBER + "|" + DAY_NUMBER + "([/.-])" + MONTH_NUMBER + ")(?:\\1|\\2)\\d{4}\\b"),
+            // 01.06.25
+            Pattern.compile("\\b(?:" + MONTH_NUMBER + "\\." + DAY_NUMBER + "|" + DAY_NUMBER + "\\." + MONTH_NUMBER + ")\\.\\d{2}\\b"),
+            // June 1st, 2025
+            Pattern.compile("\\b" + MONTH + "\\s+\\d{1,2}(?:st|nd|rd|th)?(?:,?\\s+\\d{4})?\\b", Pattern.CASE_INSENSITIVE),
+            // 1 June 2025
+            Pattern.compile("\\b\\d{1,2}(?:st|nd|rd|th)?\\s+" + MONTH + "(?:,?\\s+\\d{4})?\\b", Pattern.CASE_INSENSITIVE)
+    );
+
+    // 4:30, 16:30:00, 4:30 PM
+    private static final Pattern TIME_PATTERN = Pattern.compile("\\b\\d{1,2}:\\d{2}(?::\\d{2})?(?:\\s*[ap]\\.?m\\.?)?", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern WEEKDAY_PATTERN = Pattern.compile("\\b(?:mon|tues?|wed(?:nes)?|thu(?:rs)?|fri|sat(?:ur)?|sun)day\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern INVISIBLE_PATTERN = Pattern.compile("[\\u200B-\\u200D\\u2060\\uFEFF]");
+
+    private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
+
+    private CanonicalText() {
+    }
+
+    /**
+     * Normalize menu text.
+     *
+     * @param text the text
+     * @return the normalized text
+     */
+    static String normalize(String text) {
+        var normalized = Normalizer.normalize(text, Normalizer.Form.NFKC);
+        normalized = INVISIBLE_PATTERN.matcher(normalized).replaceAll("");
+
+        for (var pattern : DATE_PATTERNS) {
+            normalized = pattern.matcher(normalized).replaceAll("<date>");
+        }
+
+        normalized = TIME_PATTERN.matcher(normalized).replaceAll("<time>");
+        normalized = WEEKDAY_PATTERN.matcher(normalized).replaceAll("<day>");
+
+        return WHITESPACE_PATTERN.matcher(normalized).replaceAll(" ").strip();
+    }
+}
@@ -0,0 +1,131 @@
+package is.yarr.beerscanner.service.menu;
+
+import org.imgscalr.Scalr;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes, downscales and re-encodes image menus with bounded memory.
+ * Large images (such as phone photos of chalkboards) are subsampled while they're decoded, so the full resolution
+ * image is never held in memory, then resized to the target size and encoded as JPEG, which is much smaller than PNG
+ * for photos and plenty for extraction.
+ */
+@Component
+public class ImageMenuProcessor {
+
+    /**
+     * The content type of processed images.
+     */
+    public static final String CONTENT_TYPE = "image/jpeg";
+
+    private final int maxDimension;
+    private final float jpegQuality;
+
+    public ImageMenuProcessor(@Value("${app.menu.image.max-dimension}") int maxDimension,
+                              @Value("${app.menu.image.jpeg-quality}") float jpegQuality) {
+        this.maxDimension = maxDimension;
+        this.jpegQuality = jpegQuality;
+    }
+
+    /**
+     * Process an image menu.
+     *
+     * @param body the image response body
+     * @return the downscaled image as JPEG bytes
+     * @throws IOException if the image can't be read
+     */
+    public byte[] process(InputStream body) throws IOException {
+        return encodeJpeg(decodeScaled(body));
+    }
+
+    /**
+     * Decode an image at roughly the target size, skipping rows and columns while decoding, and resize it to fit
+     * within the target size.
+     *
+     * @param body the encoded image
+     * @return the image, no larger than the target size
+     * @throws IOException if the image can't be read
+     */
+    BufferedImage decodeScaled(InputStream body) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(body)) {
+            if (input == null) {
+                throw new IOException("Unsupported image format");
+            }
+
+            var readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+
+                int largestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+
+                // Round down, so the decoded image is still at least the target size and is only resized down
+                int subsampling = Math.max(1, largestSide / maxDimension);
+                var param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+                return resize(reader.read(0, param));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage resize(BufferedImage image) {
+        if (image.getWidth() <= maxDimension && image.getHeight() <= maxDimension) {
+            return image;
+        }
+
+        // The image is already within twice the target size, where BALANCED is as good as QUALITY but much faster
+        var mode = image.getWidth() > image.getHeight() ? Scalr.Mode.FIT_TO_WIDTH : Scalr.Mode.FIT_TO_HEIGHT;
+        return Scalr.resize(image, Scalr.Method.BALANCED, mode, maxDimension, maxDimension);
+    }
+
+    /**
+     * Encode an image as JPEG, flattening any transparency onto white.
+     *
+     * @param image the image
+     * @return the JPEG bytes
+     * @throws IOException if the image can't be encoded
+     */
+    byte[] encodeJpeg(BufferedImage image) throws IOException {
+        var rgb = image;
+        if (image.getType() != BufferedImage.TYPE_INT_RGB && image.getType() != BufferedImage.TYPE_3BYTE_BGR) {
+            rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            var graphics = rgb.createGraphics();
+            graphics.drawImage(image, 0, 0, Color.WHITE, null);
+            graphics.dispose();
+        }
+
+        var writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        var out = new ByteArrayOutputStream();
+        try (var output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+
+            var param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+
+            writer.write(null, new IIOImage(rgb, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+
+        return out.toByteArray();
+    }
+}
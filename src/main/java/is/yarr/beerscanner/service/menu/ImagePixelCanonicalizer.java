@@ -0,0 +1,40 @@
+package is.yarr.beerscanner.service.menu;
+
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+/**
+ * Canonicalizes image menus by their decoded pixels, so an image that's encoded differently (metadata, compression
+ * settings, chunk layout) but looks exactly the same isn't treated as a change.
+ */
+@Component
+public class ImagePixelCanonicalizer implements MenuCanonicalizer {
+
+    @Override
+    public boolean supports(String contentType) {
+        return contentType != null && contentType.startsWith("image/");
+    }
+
+    @Override
+    public Optional<byte[]> canonicalize(byte[] content) throws IOException {
+        var image = ImageIO.read(new ByteArrayInputStream(content));
+        if (image == null) {
+            return Optional.empty();
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+        // The dimensions are included so images with the same pixels in a different shape differ
+        var buffer = ByteBuffer.allocate(8 + pixels.length * 4);
+        buffer.putInt(width).putInt(height);
+        buffer.asIntBuffer().put(pixels);
+        return Optional.of(buffer.array());
+    }
+}
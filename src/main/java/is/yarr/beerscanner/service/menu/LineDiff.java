@@ -0,0 +1,128 @@
+package is.yarr.beerscanner.service.menu;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A line-level diff between two versions of a text menu, based on their longest common subsequence.
+ * Lines are compared in their canonical form (see {@link CanonicalText}), so dates and whitespace don't count as
+ * changes, but the original lines are reported.
+ *
+ * @param removed   the lines of the previous menu that aren't in the current one
+ * @param added     the lines of the current menu that weren't in the previous one
+ * @param unchanged the number of lines in both
+ */
+public record LineDiff(List<String> removed, List<String> added, int unchanged) {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * The largest diff that's computed, in lines of the previous menu times lines of the current one, to bound the
+     * memory of the comparison table.
+     */
+    static final long MAX_CELLS = 4_000_000;
+
+    /**
+     * @return if the menus have the same lines
+     */
+    public boolean isEmpty() {
+        return removed.isEmpty() && added.isEmpty();
+    }
+
+    /**
+     * @return the share of the current menu's lines that were added, from 0 to 1
+     */
+    public double addedRatio() {
+        int currentLines = added.size() + unchanged;
+        return currentLines == 0 ? 0 : (double) added.size() / currentLines;
+    }
+
+    /**
+     * Split menu text into non-blank lines. Scraped menus are a JSON array of the text of each matched element, whose
+     * elements are split too.
+     *
+     * @param text the menu text
+     * @return the trimmed lines
+     */
+    public static List<String> lines(String text) {
+        List<String> segments = List.of(text);
+
+        var trimmed = text.strip();
+        if (trimmed.startsWith("[")) {
+            try {
+                segments = OBJECT_MAPPER.readValue(trimmed, new TypeReference<List<String>>() {
+                });
+            } catch (JsonProcessingException e) {
+                // Not a JSON array, so treat it as plain text
+            }
+        }
+
+        return segments.stream()
+                .flatMap(String::lines)
+                .map(String::strip)
+                .filter(line -> !line.isEmpty())
+                .toList();
+    }
+
+    /**
+     * Diff two versions of a menu.
+     *
+     * @param previous the lines of the previous menu
+     * @param current  the lines of the current menu
+     * @return the diff
+     * @throws IllegalArgumentException if the menus are too long to diff
+     */
+    public static LineDiff of(List<String> previous, List<String> current) {
+        int n = previous.size();
+        int m = current.size();
+
+        if ((long) n * m > MAX_CELLS) {
+            throw new IllegalArgumentException("Menus are too long to diff: %d and %d lines".formatted(n, m));
+        }
+
+        var previousKeys = previous.stream().map(CanonicalText::normalize).toArray(String[]::new);
+        var currentKeys = current.stream().map(CanonicalText::normalize).toArray(String[]::new);
+
+        // lengths[i][j] is the length of the longest common subsequence of previous[i..] and current[j..]
+        var lengths = new int[n + 1][m + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            for (int j = m - 1; j >= 0; j--) {
+                lengths[i][j] = previousKeys[i].equals(currentKeys[j])
+                        ? lengths[i + 1][j + 1] + 1
+                        : Math.max(lengths[i + 1][j], lengths[i][j + 1]);
+            }
+        }
+
+        var removed = new ArrayList<String>();
+        var added = new ArrayList<String>();
+        int unchanged = 0;
+
+        int i = 0;
+        int j = 0;
+        while (i < n && j < m) {
+            if (previousKeys[i].equals(currentKeys[j])) {
+                unchanged++;
+                i++;
+                j++;
+            } else if (lengths[i + 1][j] >= lengths[i][j + 1]) {
+                removed.add(previous.get(i++));
+            } else {
+                added.add(current.get(j++));
+            }
+        }
+
+        removed.addAll(previous.subList(i, n));
+        added.addAll(current.subList(j, m));
+
+        return new LineDiff(List.copyOf(removed), List.copyOf(added), unchanged);
+    }
+
+    @Override
+    public String toString() {
+        return "LineDiff{removed=%d, added=%d, unchanged=%d}".formatted(removed.size(), added.size(), unchanged);
+    }
+}
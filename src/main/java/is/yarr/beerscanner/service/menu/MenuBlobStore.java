@@ -0,0 +1,124 @@
+package is.yarr.beerscanner.service.menu;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content-addressed store for downloaded menus, kept under {@code menu-blobs} in the data directory instead of in
+ * the database.
+ * Blobs are keyed by the hex form of the digest (see {@link MenuDigest}) of the bytes stored, rather than of the
+ * download they were processed from, so a blob never changes once written, and gzip compressed, so identical menus
+ * are only stored once. Blobs are written to a temporary file and moved into place, so a blob is either complete or
+ * absent.
+ */
+@Component
+public class MenuBlobStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MenuBlobStore.class);
+
+    private final Path blobDir;
+
+    public MenuBlobStore(@Value("${app.data-dir}") String dataDir) {
+        this.blobDir = Paths.get(dataDir, "menu-blobs");
+    }
+
+    /**
+     * Store a menu, unless the same content is already stored.
+     *
+     * @param content the menu content, as it's extracted from
+     * @return the key of the blob
+     */
+    public String put(byte[] content) {
+        var key = keyOf(MenuDigest.of(content));
+        var path = pathOf(key);
+
+        if (Files.exists(path)) {
+            return key;
+        }
+
+        try {
+            Files.createDirectories(path.getParent());
+
+            var tempFile = Files.createTempFile(path.getParent(), key, ".tmp");
+            try {
+                try (var out = new GZIPOutputStream(Files.newOutputStream(tempFile))) {
+                    out.write(content);
+                }
+
+                move(tempFile, path);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error storing menu blob " + key, e);
+        }
+
+        LOGGER.debug("Stored menu blob {} ({} bytes)", key, content.length);
+        return key;
+    }
+
+    /**
+     * Read a stored menu.
+     *
+     * @param key the key of the blob
+     * @return the raw menu content
+     * @throws IOException if the blob doesn't exist or can't be read
+     */
+    public byte[] get(String key) throws IOException {
+        try (var in = new GZIPInputStream(Files.newInputStream(pathOf(key)))) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Decode menu content stored in the database by earlier versions: plain text as is, and everything else as
+     * base64.
+     *
+     * @param menuContent the stored content
+     * @param contentType the content type
+     * @return the raw menu content
+     */
+    public static byte[] decodeLegacyContent(String menuContent, String contentType) {
+        if ("text/plain".equals(contentType)) {
+            return menuContent.getBytes(StandardCharsets.UTF_8);
+        }
+
+        return Base64.getDecoder().decode(menuContent);
+    }
+
+    static String keyOf(String menuHash) {
+        return HexFormat.of().formatHex(Base64.getDecoder().decode(menuHash));
+    }
+
+    private Path pathOf(String key) {
+        if (key.length() < 2 || !key.chars().allMatch(HexFormat::isHexDigit)) {
+            throw new IllegalArgumentException("Invalid menu blob key: " + key);
+        }
+
+        // Fan out by the first byte, so no single directory grows too large
+        return blobDir.resolve(key.substring(0, 2)).resolve(key + ".gz");
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package is.yarr.beerscanner.service.menu;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Reduces a menu of a certain content type to a canonical form that only changes when the menu's contents do, so
+ * cosmetic changes (a re-exported PDF, a "last updated" line, a re-encoded image) don't cause a new extraction.
+ * Implementations are picked up by {@link SemanticHashService}.
+ */
+public interface MenuCanonicalizer {
+
+    /**
+     * @param contentType the content type of a menu
+     * @return if this canonicalizer handles menus of the content type
+     */
+    boolean supports(String contentType);
+
+    /**
+     * Canonicalize a menu.
+     *
+     * @param content the raw menu content
+     * @return the canonical form, or an empty optional if the menu has no usable canonical form (such as a scanned
+     * PDF without text), in which case the raw content is used
+     * @throws IOException if the menu can't be read
+     */
+    Optional<byte[]> canonicalize(byte[] content) throws IOException;
+}
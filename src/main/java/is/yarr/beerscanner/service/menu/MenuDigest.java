@@ -0,0 +1,67 @@
+package is.yarr.beerscanner.service.menu;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * SHA-256 hashes of menus, used to detect whether a menu changed since the last check.
+ * Hashes are computed over the raw downloaded bytes as they're read, so a menu never has to be held as a string just
+ * to be hashed.
+ */
+public final class MenuDigest {
+
+    private static final String ALGORITHM = "SHA-256";
+
+    private MenuDigest() {
+    }
+
+    /**
+     * Wrap a body so everything read through it is hashed.
+     *
+     * @param body the body to read
+     * @return the hashing stream, whose hash is available from {@link #finish(DigestInputStream)}
+     */
+    public static DigestInputStream digesting(InputStream body) {
+        return new DigestInputStream(body, newDigest());
+    }
+
+    /**
+     * Read the rest of a hashing stream and return the hash of everything read through it.
+     * The remainder is read (and discarded) so the hash covers the whole body, even if the consumer stopped early.
+     *
+     * @param body the hashing stream
+     * @return the base64 encoded hash
+     * @throws IOException if an I/O error occurs
+     */
+    public static String finish(DigestInputStream body) throws IOException {
+        body.transferTo(OutputStream.nullOutputStream());
+        return encode(body.getMessageDigest().digest());
+    }
+
+    /**
+     * Hash content that's already in memory.
+     *
+     * @param content the content
+     * @return the base64 encoded hash
+     */
+    public static String of(byte[] content) {
+        return encode(newDigest().digest(content));
+    }
+
+    private static String encode(byte[] hash) {
+        return Base64.getEncoder().encodeToString(hash);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Error calculating hash", e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package is.yarr.beerscanner.service.menu;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The kind of content a menu URL serves, determined from the response's magic bytes and content type header.
+ */
+public enum MenuType {
+    PDF,
+    IMAGE,
+    HTML,
+    UNKNOWN;
+
+    /**
+     * The number of bytes {@link #sniff(String, InputStream)} needs to peek at.
+     */
+    public static final int SNIFF_LENGTH = 16;
+
+    private static final byte[] PDF_MAGIC = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PNG_MAGIC = {(byte) 0x89, 'P', 'N', 'G'};
+    private static final byte[] JPEG_MAGIC = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] GIF_MAGIC = "GIF8".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RIFF_MAGIC = "RIFF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] WEBP_MAGIC = "WEBP".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Determine the menu type of a response body.
+     * The magic bytes take precedence, since servers often label PDFs and images as
+     * {@code application/octet-stream} or similar. The stream is reset to where it was before sniffing.
+     *
+     * @param contentType the response's content type header, if any
+     * @param body the response body, which must support {@link InputStream#mark(int)}
+     * @return the menu type
+     * @throws IOException if an I/O error occurs
+     */
+    public static MenuType sniff(String contentType, InputStream body) throws IOException {
+        body.mark(SNIFF_LENGTH);
+        byte[] head = body.readNBytes(SNIFF_LENGTH);
+        body.reset();
+
+        var sniffed = fromMagicBytes(head);
+        if (sniffed != UNKNOWN) {
+            return sniffed;
+        }
+
+        return fromContentType(contentType);
+    }
+
+    /**
+     * Determine the menu type from the first bytes of a body.
+     *
+     * @param head the first bytes of the body
+     * @return the menu type, or {@link #UNKNOWN} if the bytes aren't recognized
+     */
+    static MenuType fromMagicBytes(byte[] head) {
+        if (startsWith(head, 0, PDF_MAGIC)) {
+            return PDF;
+        }
+
+        if (startsWith(head, 0, PNG_MAGIC) || startsWith(head, 0, JPEG_MAGIC) || startsWith(head, 0, GIF_MAGIC)
+                || (startsWith(head, 0, RIFF_MAGIC) && startsWith(head, 8, WEBP_MAGIC))) {
+            return IMAGE;
+        }
+
+        // Markup starts with a '<', possibly after a byte order mark or whitespace
+        var text = new String(head, StandardCharsets.UTF_8).replace("\uFEFF", "").stripLeading();
+        if (text.startsWith("<")) {
+            return HTML;
+        }
+
+        return UNKNOWN;
+    }
+
+    /**
+     * Determine the menu type from a content type header.
+     *
+     * @param contentType the content type header, if any
+     * @return the menu type, or {@link #UNKNOWN} if the content type isn't supported
+     */
+    static MenuType fromContentType(String contentType) {
+        if (contentType == null) {
+            return UNKNOWN;
+        }
+
+        if (contentType.contains("application/pdf")) {
+            return PDF;
+        } else if (contentType.contains("image/")) {
+            return IMAGE;
+        } else if (contentType.contains("text/html") || contentType.contains("application/xhtml")) {
+            return HTML;
+        }
+
+        return UNKNOWN;
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, byte[] prefix) {
+        return bytes.length >= offset + prefix.length
+                && Arrays.equals(bytes, offset, offset + prefix.length, prefix, 0, prefix.length);
+    }
+}
@@ -0,0 +1,100 @@
+package is.yarr.beerscanner.service.menu;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads PDF menus with bounded memory.
+ * Downloads over the size limit are rejected (up front if the server sends a {@code Content-Length}), the body is
+ * streamed to a temporary file instead of the heap, and PDFBox spills to scratch files past its memory limit. PDFs
+ * with more pages than the limit are trimmed to their first pages, since menus are rarely further in.
+ */
+@Component
+public class PdfMenuProcessor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PdfMenuProcessor.class);
+
+    private final long maxSize;
+    private final int maxPages;
+    private final long memoryLimit;
+
+    public PdfMenuProcessor(@Value("${app.menu.pdf.max-size}") DataSize maxSize,
+                            @Value("${app.menu.pdf.max-pages}") int maxPages,
+                            @Value("${app.menu.pdf.memory-limit}") DataSize memoryLimit) {
+        this.maxSize = maxSize.toBytes();
+        this.maxPages = maxPages;
+        this.memoryLimit = memoryLimit.toBytes();
+    }
+
+    /**
+     * Read a PDF menu.
+     *
+     * @param body          the PDF response body, which is read to the end
+     * @param contentLength the response's content length, or null if unknown
+     * @return the PDF bytes, trimmed to the page limit
+     * @throws IOException if the PDF is too large or can't be read
+     */
+    public byte[] process(InputStream body, Long contentLength) throws IOException {
+        if (contentLength != null && contentLength > maxSize) {
+            throw new IOException("PDF menu is %d bytes, over the limit of %d bytes".formatted(contentLength, maxSize));
+        }
+
+        Path tempFile = Files.createTempFile("menu-", ".pdf");
+        try {
+            long size = copyBounded(body, tempFile);
+
+            try (var document = PDDocument.load(tempFile.toFile(), MemoryUsageSetting.setupMixed(memoryLimit))) {
+                int pageCount = document.getNumberOfPages();
+                if (pageCount <= maxPages) {
+                    return Files.readAllBytes(tempFile);
+                }
+
+                LOGGER.info("Trimming PDF menu from {} to {} pages", pageCount, maxPages);
+                for (int i = pageCount - 1; i >= maxPages; i--) {
+                    document.removePage(i);
+                }
+
+                var out = new ByteArrayOutputStream((int) Math.min(size, Integer.MAX_VALUE));
+                document.save(out);
+                return out.toByteArray();
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Copy a body to a file, failing as soon as it's over the size limit.
+     *
+     * @return the number of bytes copied
+     */
+    private long copyBounded(InputStream body, Path file) throws IOException {
+        long size = 0;
+        var buffer = new byte[8192];
+
+        try (var out = Files.newOutputStream(file)) {
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                size += read;
+                if (size > maxSize) {
+                    throw new IOException("PDF menu is over the limit of %d bytes".formatted(maxSize));
+                }
+
+                out.write(buffer, 0, read);
+            }
+        }
+
+        return size;
+    }
+}
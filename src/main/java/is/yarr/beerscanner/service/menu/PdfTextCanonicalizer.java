@@ -0,0 +1,47 @@
+package is.yarr.beerscanner.service.menu;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Canonicalizes PDF menus by their normalized text, so re-exports that only change metadata, timestamps or layout
+ * aren't treated as changes. PDFs without a text layer (scanned menus) have no canonical form.
+ * Like {@link PdfMenuProcessor}, PDFBox spills to scratch files past its memory limit.
+ */
+@Component
+public class PdfTextCanonicalizer implements MenuCanonicalizer {
+
+    private final long memoryLimit;
+
+    public PdfTextCanonicalizer(@Value("${app.menu.pdf.memory-limit}") DataSize memoryLimit) {
+        this.memoryLimit = memoryLimit.toBytes();
+    }
+
+    @Override
+    public boolean supports(String contentType) {
+        return "application/pdf".equals(contentType);
+    }
+
+    @Override
+    public Optional<byte[]> canonicalize(byte[] content) throws IOException {
+        try (var document = PDDocument.load(content, "", null, null, MemoryUsageSetting.setupMixed(memoryLimit))) {
+            var stripper = new PDFTextStripper();
+            stripper.setSortByPosition(true);
+
+            var text = CanonicalText.normalize(stripper.getText(document));
+            if (text.isEmpty()) {
+                return Optional.empty();
+            }
+
+            return Optional.of(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
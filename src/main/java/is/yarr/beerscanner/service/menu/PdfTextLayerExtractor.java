@@ -0,0 +1,77 @@
+package is.yarr.beerscanner.service.menu;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Extracts the text layer of PDF menus, so PDFs generated from Word, Canva and the like can be sent for extraction
+ * as text instead of as a file.
+ * A text layer is only usable if it has enough text and the text is mostly readable, since scanned PDFs have no
+ * text (or only OCR noise) and PDFs with broken font encodings produce replacement characters.
+ * Like {@link PdfMenuProcessor}, PDFBox spills to scratch files past its memory limit.
+ */
+@Component
+public class PdfTextLayerExtractor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PdfTextLayerExtractor.class);
+
+    // The share of characters that may be unreadable before the text layer is considered broken
+    private static final double MAX_UNREADABLE_RATIO = 0.05;
+
+    private final int minCharacters;
+    private final long memoryLimit;
+
+    public PdfTextLayerExtractor(@Value("${app.menu.pdf.min-text-characters}") int minCharacters,
+                                 @Value("${app.menu.pdf.memory-limit}") DataSize memoryLimit) {
+        this.minCharacters = minCharacters;
+        this.memoryLimit = memoryLimit.toBytes();
+    }
+
+    /**
+     * Extract the text layer of a PDF, if it has a usable one.
+     *
+     * @param pdf the PDF
+     * @return the text, or an empty optional if the PDF has no usable text layer
+     */
+    public Optional<String> extract(byte[] pdf) {
+        String text;
+        try (var document = PDDocument.load(pdf, "", null, null, MemoryUsageSetting.setupMixed(memoryLimit))) {
+            var stripper = new PDFTextStripper();
+            stripper.setSortByPosition(true);
+            text = stripper.getText(document);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to read PDF text layer: {}", e.getMessage());
+            return Optional.empty();
+        }
+
+        return isUsable(text) ? Optional.of(text.strip()) : Optional.empty();
+    }
+
+    boolean isUsable(String text) {
+        int characters = 0;
+        int unreadable = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+
+            characters++;
+            if (c == '\uFFFD' || Character.isISOControl(c) || Character.getType(c) == Character.PRIVATE_USE) {
+                unreadable++;
+            }
+        }
+
+        return characters >= minCharacters && unreadable <= characters * MAX_UNREADABLE_RATIO;
+    }
+}
@@ -0,0 +1,24 @@
+package is.yarr.beerscanner.service.menu;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Canonicalizes scraped text menus by normalizing dates, times and whitespace.
+ */
+@Component
+public class PlainTextCanonicalizer implements MenuCanonicalizer {
+
+    @Override
+    public boolean supports(String contentType) {
+        return "text/plain".equals(contentType);
+    }
+
+    @Override
+    public Optional<byte[]> canonicalize(byte[] content) {
+        var text = CanonicalText.normalize(new String(content, StandardCharsets.UTF_8));
+        return Optional.of(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,52 @@
+package is.yarr.beerscanner.service.menu;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Computes semantic hashes of menus: the hash of a menu's canonical form (see {@link MenuCanonicalizer}), used to
+ * decide whether a menu changed. Menus without a canonical form are hashed as is.
+ */
+@Service
+public class SemanticHashService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SemanticHashService.class);
+
+    private final List<MenuCanonicalizer> canonicalizers;
+
+    public SemanticHashService(List<MenuCanonicalizer> canonicalizers) {
+        this.canonicalizers = canonicalizers;
+    }
+
+    /**
+     * Calculate the semantic hash of a menu.
+     *
+     * @param content     the raw menu content
+     * @param contentType the content type
+     * @param rawHash     the hash of the raw content, used if the menu has no canonical form
+     * @return the semantic hash
+     */
+    public String semanticHash(byte[] content, String contentType, String rawHash) {
+        for (var canonicalizer : canonicalizers) {
+            if (!canonicalizer.supports(contentType)) {
+                continue;
+            }
+
+            try {
+                var canonical = canonicalizer.canonicalize(content);
+                if (canonical.isPresent()) {
+                    return MenuDigest.of(canonical.get());
+                }
+            } catch (Exception e) {
+                LOGGER.warn("Failed to canonicalize {} menu with {}: {}", contentType, canonicalizer.getClass().getSimpleName(), e.getMessage());
+            }
+
+            break;
+        }
+
+        return rawHash;
+    }
+}
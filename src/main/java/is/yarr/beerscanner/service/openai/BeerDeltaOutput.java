@@ -0,0 +1,32 @@
+package is.yarr.beerscanner.service.openai;
+
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+
+import java.util.List;
+
+public class BeerDeltaOutput {
+
+    @JsonPropertyDescription("Beers on the current menu that aren't on the previous beer list")
+    public List<BeerListOutput.BeerOutput> added;
+
+    @JsonPropertyDescription("Beers on the previous beer list that are no longer on the menu")
+    public List<RemovedBeer> removed;
+
+    public static class RemovedBeer {
+        @JsonPropertyDescription("The name of the beer, exactly as on the previous beer list")
+        public String name;
+
+        @JsonPropertyDescription("The brewery of the beer, exactly as on the previous beer list")
+        public String brewery;
+
+        @Override
+        public String toString() {
+            return "RemovedBeer{name='%s', brewery='%s'}".formatted(name, brewery);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BeerDeltaOutput{added=%s, removed=%s}".formatted(added, removed);
+    }
+}
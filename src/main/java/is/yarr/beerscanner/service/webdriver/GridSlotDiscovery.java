@@ -0,0 +1,78 @@
+package is.yarr.beerscanner.service.webdriver;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import is.yarr.beerscanner.service.fetch.HttpFetchClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.OptionalInt;
+
+/**
+ * Discovers how many Chrome sessions the Selenium grid can run at once, from the slots its nodes report on the hub's
+ * {@code /status} endpoint.
+ */
+@Component
+public class GridSlotDiscovery {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GridSlotDiscovery.class);
+
+    private final HttpFetchClient httpFetchClient;
+    private final ObjectMapper objectMapper;
+
+    public GridSlotDiscovery(HttpFetchClient httpFetchClient, ObjectMapper objectMapper) {
+        this.httpFetchClient = httpFetchClient;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Count the grid's Chrome slots.
+     *
+     * @param hubUrl the URL of the Selenium hub
+     * @return the number of Chrome slots on nodes that are up, or an empty optional if the hub's status can't be read
+     */
+    public OptionalInt discoverSlots(String hubUrl) {
+        var statusUrl = hubUrl.replaceAll("/+$", "") + "/status";
+
+        try (var response = httpFetchClient.get(statusUrl)) {
+            if (!response.isSuccessful()) {
+                LOGGER.warn("Selenium hub status request to {} failed with status {}", statusUrl, response.status());
+                return OptionalInt.empty();
+            }
+
+            return OptionalInt.of(countChromeSlots(response.body()));
+        } catch (IOException e) {
+            LOGGER.warn("Failed to read Selenium hub status from {}: {}", statusUrl, e.getMessage());
+            return OptionalInt.empty();
+        }
+    }
+
+    /**
+     * Count the Chrome slots in a Selenium Grid 4 status response.
+     *
+     * @param status the status response body
+     * @return the number of Chrome slots on nodes that are up
+     * @throws IOException if the response can't be parsed
+     */
+    int countChromeSlots(InputStream status) throws IOException {
+        JsonNode root = objectMapper.readTree(status);
+
+        int slots = 0;
+        for (var node : root.path("value").path("nodes")) {
+            if (!"UP".equalsIgnoreCase(node.path("availability").asText("UP"))) {
+                continue;
+            }
+
+            for (var slot : node.path("slots")) {
+                if ("chrome".equalsIgnoreCase(slot.path("stereotype").path("browserName").asText())) {
+                    slots++;
+                }
+            }
+        }
+
+        return slots;
+    }
+}
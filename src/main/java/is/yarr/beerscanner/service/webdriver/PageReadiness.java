@@ -0,0 +1,160 @@
+package is.yarr.beerscanner.service.webdriver;
+
+import is.yarr.beerscanner.model.BarWebpageSettings;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Waits for a bar's webpage to be ready to scrape, using the bar's {@link BarWebpageSettings.ReadinessStrategy}.
+ * Each strategy samples a signature of the page (such as how many DOM mutations have happened) and returns as soon as
+ * the signature has stayed the same for the quiet period, so fast pages aren't waited on and slow JavaScript menus
+ * are given up to the bar's timeout.
+ */
+@Component
+public class PageReadiness {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PageReadiness.class);
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(100);
+
+    // Each script returns null while the page isn't ready, or a signature of the page that changes while it loads
+    private static final String DOM_QUIET_SCRIPT = """
+            if (!window.__beerScannerMutations) {
+                window.__beerScannerMutations = { count: 0 };
+                new MutationObserver(mutations => window.__beerScannerMutations.count += mutations.length)
+                    .observe(document, { childList: true, subtree: true, attributes: true, characterData: true });
+            }
+            return document.readyState === 'complete' ? String(window.__beerScannerMutations.count) : null;""";
+
+    // Resources are counted with an observer, as the performance timeline stops recording them once its buffer is full
+    private static final String NETWORK_IDLE_SCRIPT = """
+            if (!window.__beerScannerResources) {
+                window.__beerScannerResources = { count: 0 };
+                new PerformanceObserver(list => window.__beerScannerResources.count += list.getEntries().length)
+                    .observe({ type: 'resource', buffered: true });
+            }
+            return document.readyState === 'complete' ? String(window.__beerScannerResources.count) : null;""";
+
+    private static final String ELEMENT_COUNT_SCRIPT = """
+            const result = document.evaluate(arguments[0], document, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);
+            if (result.snapshotLength === 0) {
+                return null;
+            }
+            let textLength = 0;
+            for (let i = 0; i < result.snapshotLength; i++) {
+                textLength += (result.snapshotItem(i).textContent || '').length;
+            }
+            return result.snapshotLength + ':' + textLength;""";
+
+    private final BarWebpageSettings.ReadinessStrategy defaultStrategy;
+    private final Duration defaultTimeout;
+    private final Duration quietPeriod;
+    private final Clock clock;
+
+    @Autowired
+    public PageReadiness(@Value("${app.webdriver.readiness.default-strategy}") BarWebpageSettings.ReadinessStrategy defaultStrategy,
+                         @Value("${app.webdriver.readiness.default-timeout}") Duration defaultTimeout,
+                         @Value("${app.webdriver.readiness.quiet-period}") Duration quietPeriod) {
+        this(defaultStrategy, defaultTimeout, quietPeriod, Clock.systemUTC());
+    }
+
+    PageReadiness(BarWebpageSettings.ReadinessStrategy defaultStrategy, Duration defaultTimeout, Duration quietPeriod, Clock clock) {
+        this.defaultStrategy = defaultStrategy;
+        this.defaultTimeout = defaultTimeout;
+        this.quietPeriod = quietPeriod;
+        this.clock = clock;
+    }
+
+    /**
+     * Get how long to wait for a bar's webpage, its age verification button and its menu.
+     *
+     * @param settings the bar's webpage settings
+     * @return the bar's timeout, or the default
+     */
+    public Duration timeout(BarWebpageSettings settings) {
+        var seconds = settings.getReadinessTimeoutSeconds();
+        return seconds == null || seconds <= 0 ? defaultTimeout : Duration.ofSeconds(seconds);
+    }
+
+    /**
+     * Wait for a bar's webpage to be ready. If it isn't ready within the bar's timeout, scraping goes ahead anyway.
+     *
+     * @param driver the driver showing the webpage
+     * @param settings the bar's webpage settings
+     * @return if the page became ready within the timeout
+     */
+    public boolean await(WebDriver driver, BarWebpageSettings settings) {
+        var strategy = Objects.requireNonNullElse(settings.getReadinessStrategy(), defaultStrategy);
+        var timeout = timeout(settings);
+        var javascriptExecutor = (JavascriptExecutor) driver;
+
+        var start = clock.instant();
+        var condition = new QuietCondition(() -> switch (strategy) {
+            case DOM_QUIET -> javascriptExecutor.executeScript(DOM_QUIET_SCRIPT);
+            case NETWORK_IDLE -> javascriptExecutor.executeScript(NETWORK_IDLE_SCRIPT);
+            case ELEMENT_COUNT_STABLE -> javascriptExecutor.executeScript(ELEMENT_COUNT_SCRIPT, settings.getMenuComponentXPath());
+        });
+
+        try {
+            new WebDriverWait(driver, timeout, POLL_INTERVAL).until(ignored -> condition.isQuiet());
+
+            LOGGER.info("Page was ready by {} after {} ms", strategy, Duration.between(start, clock.instant()).toMillis());
+            return true;
+        } catch (TimeoutException e) {
+            LOGGER.warn("Page wasn't ready by {} within {}, scraping it anyway", strategy, timeout);
+            return false;
+        }
+    }
+
+    /**
+     * Tracks when a page's signature last changed.
+     */
+    final class QuietCondition {
+
+        private final Supplier<Object> source;
+        private Object lastSignature;
+        private Instant lastChangedAt;
+
+        QuietCondition(Supplier<Object> source) {
+            this.source = source;
+        }
+
+        /**
+         * Sample the signature.
+         *
+         * @return true once the page is ready and its signature hasn't changed for the quiet period, otherwise null so
+         * {@link WebDriverWait} keeps polling
+         */
+        Boolean isQuiet() {
+            var signature = source.get();
+            var now = clock.instant();
+
+            if (signature == null) {
+                lastSignature = null;
+                lastChangedAt = null;
+                return null;
+            }
+
+            if (!signature.equals(lastSignature)) {
+                lastSignature = signature;
+                lastChangedAt = now;
+                return null;
+            }
+
+            return Duration.between(lastChangedAt, now).compareTo(quietPeriod) >= 0 ? true : null;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package is.yarr.beerscanner.service.webdriver;
+
+import is.yarr.beerscanner.model.BarWebpageSettings;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chromium.HasCdp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Stops Chrome from downloading resources that text-mode scraping doesn't need, such as images, web fonts, videos
+ * and analytics scripts, using the DevTools {@code Network.setBlockedURLs} command.
+ * <p>
+ * Patterns use {@code *} as a wildcard and are matched against the whole URL. A bar can turn blocking off, or unblock
+ * the patterns matching resources it needs. DevTools can only block patterns, not make exceptions to them, so
+ * unblocking a URL unblocks every resource its pattern matches (a {@code .png} URL unblocks all PNGs).
+ * <p>
+ * To compare how long pages take to load with and without blocking on the same bars, a small sample of scrapes that
+ * would block resources load everything instead.
+ */
+@Component
+public class ResourceBlocking {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResourceBlocking.class);
+
+    private final boolean enabledByDefault;
+    private final List<String> blockedUrlPatterns;
+    private final double comparisonSampleRate;
+    private final DoubleSupplier random;
+
+    @Autowired
+    public ResourceBlocking(@Value("${app.webdriver.resource-blocking.enabled}") boolean enabledByDefault,
+                            @Value("${app.webdriver.resource-blocking.blocked-urls}") List<String> blockedUrlPatterns,
+                            @Value("${app.webdriver.resource-blocking.comparison-sample-rate}") double comparisonSampleRate) {
+        this(enabledByDefault, blockedUrlPatterns, comparisonSampleRate, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    ResourceBlocking(boolean enabledByDefault, List<String> blockedUrlPatterns, double comparisonSampleRate, DoubleSupplier random) {
+        this.enabledByDefault = enabledByDefault;
+        this.blockedUrlPatterns = blockedUrlPatterns.stream()
+                .map(String::trim)
+                .filter(pattern -> !pattern.isEmpty())
+                .toList();
+        this.comparisonSampleRate = comparisonSampleRate;
+        this.random = random;
+    }
+
+    /**
+     * If a scrape blocked resources, used to tag how long its page took to load.
+     */
+    public enum Mode {
+        ON("on"), // Resources were blocked
+        OFF("off"), // The bar doesn't block resources, or they couldn't be blocked
+        SAMPLED_OFF("sampled-off"); // The bar blocks resources, but this scrape was sampled to load them all
+
+        private final String tag;
+
+        Mode(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    /**
+     * Get the URL patterns to block for a bar's webpage.
+     *
+     * @param settings the bar's webpage settings
+     * @return the patterns, or an empty list if the bar doesn't block resources
+     */
+    public List<String> blockedUrlPatterns(BarWebpageSettings settings) {
+        if (!Objects.requireNonNullElse(settings.getBlockResources(), enabledByDefault)) {
+            return List.of();
+        }
+
+        var unblocked = parseUnblockedPatterns(settings.getUnblockedResourcePatterns());
+        return blockedUrlPatterns.stream()
+                .filter(pattern -> unblocked.stream().noneMatch(toRegex(pattern).asMatchPredicate()))
+                .toList();
+    }
+
+    /**
+     * Set the resources a session blocks before it loads a bar's webpage. Pooled sessions keep the blocked URLs of the
+     * last bar they scraped, so they're always set, even if there are none.
+     *
+     * @param driver the session
+     * @param settings the bar's webpage settings
+     * @return if resources are blocked, or why they aren't
+     */
+    public Mode apply(WebDriver driver, BarWebpageSettings settings) {
+        var patterns = blockedUrlPatterns(settings);
+        var mode = patterns.isEmpty() ? Mode.OFF : Mode.ON;
+        if (mode == Mode.ON && random.getAsDouble() < comparisonSampleRate) {
+            patterns = List.of();
+            mode = Mode.SAMPLED_OFF;
+        }
+
+        if (!(driver instanceof HasCdp cdp)) {
+            if (mode == Mode.ON) {
+                LOGGER.warn("Selenium session doesn't support DevTools, loading all resources");
+            }
+
+            return mode == Mode.ON ? Mode.OFF : mode;
+        }
+
+        try {
+            cdp.executeCdpCommand("Network.enable", Map.of());
+            cdp.executeCdpCommand("Network.setBlockedURLs", Map.of("urls", patterns));
+        } catch (WebDriverException e) {
+            LOGGER.warn("Failed to block resources, loading all of them: {}", e.getMessage());
+            return mode == Mode.ON ? Mode.OFF : mode;
+        }
+
+        return mode;
+    }
+
+    private static List<String> parseUnblockedPatterns(String unblockedPatterns) {
+        if (unblockedPatterns == null) {
+            return List.of();
+        }
+
+        return Arrays.stream(unblockedPatterns.split("[,\\s]+"))
+                .filter(pattern -> !pattern.isEmpty())
+                .toList();
+    }
+
+    private static Pattern toRegex(String pattern) {
+        return Pattern.compile(Arrays.stream(pattern.split("\\*", -1))
+                .map(Pattern::quote)
+                .collect(Collectors.joining(".*")));
+    }
+}
@@ -0,0 +1,378 @@
+package is.yarr.beerscanner.service.webdriver;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.remote.Augmenter;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.UnreachableBrowserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded pool of warm Selenium sessions on the Selenium hub, so scraping a bar's webpage doesn't pay for creating a
+ * session and starting Chrome every time.
+ * Sessions are health-checked when they're borrowed, and reset (cookies and storage cleared, then {@code about:blank})
+ * when they're returned. Sessions are replaced after a number of uses, or when they crash or can't be reset.
+ * <p>
+ * The pool runs as many sessions at once as the grid has Chrome slots, which are discovered from the hub and
+ * rediscovered periodically on the pool's own thread (unless a pool size is configured), starting as soon as the
+ * application is ready. When every slot is busy, scrapes queue fairly.
+ * <p>
+ * How often sessions are reused is recorded in the {@code beerscanner.webdriver.sessions} counter (tagged with
+ * {@code created} or {@code reused}). Time spent queueing for a free slot is recorded in the
+ * {@code beerscanner.webdriver.queue} timer, getting a session once a slot is free in
+ * {@code beerscanner.webdriver.acquire}, and using it to scrape a page in {@code beerscanner.webdriver.page}.
+ */
+@Component
+public class WebDriverPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WebDriverPool.class);
+
+    private final String hubUrl;
+    private final int configuredPoolSize;
+    private final Duration discoveryInterval;
+    private final int maxUses;
+    private final Duration acquireTimeout;
+    private final GridSlotDiscovery gridSlotDiscovery;
+    private final SessionFactory sessionFactory;
+
+    // Bounds the number of sessions, idle or borrowed. Fair, so scrapes get sessions in the order they asked
+    private final ResizableSemaphore permits;
+    private final ConcurrentLinkedDeque<PooledSession> idleSessions = new ConcurrentLinkedDeque<>();
+
+    // Only changed by the scheduled discovery
+    private volatile int capacity;
+
+    // Rediscovers the grid's slots. Not Spring's scheduler, whose single thread is held by bar checks for hours
+    private final ScheduledExecutorService discoveryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "webdriver-discovery");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Counter createdSessions;
+    private final Counter reusedSessions;
+    private final Timer queueTimer;
+    private final Timer acquireTimer;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public WebDriverPool(@Value("${app.webdriver.hub-url}") String hubUrl,
+                         @Value("${app.webdriver.pool-size}") int poolSize,
+                         @Value("${app.webdriver.discovery-interval}") Duration discoveryInterval,
+                         @Value("${app.webdriver.max-uses}") int maxUses,
+                         @Value("${app.webdriver.acquire-timeout}") Duration acquireTimeout,
+                         GridSlotDiscovery gridSlotDiscovery,
+                         MeterRegistry meterRegistry) {
+        this(hubUrl, poolSize, discoveryInterval, maxUses, acquireTimeout, gridSlotDiscovery, meterRegistry, () -> createRemoteSession(hubUrl));
+    }
+
+    WebDriverPool(String hubUrl, int poolSize, Duration discoveryInterval, int maxUses, Duration acquireTimeout,
+                  GridSlotDiscovery gridSlotDiscovery, MeterRegistry meterRegistry, SessionFactory sessionFactory) {
+        this.hubUrl = hubUrl;
+        this.configuredPoolSize = poolSize;
+        this.discoveryInterval = discoveryInterval;
+        this.maxUses = maxUses;
+        this.acquireTimeout = acquireTimeout;
+        this.gridSlotDiscovery = gridSlotDiscovery;
+        this.sessionFactory = sessionFactory;
+        this.meterRegistry = meterRegistry;
+
+        // Until the grid's slots are discovered, one session at a time
+        this.capacity = poolSize > 0 ? poolSize : 1;
+        this.permits = new ResizableSemaphore(capacity);
+
+        this.createdSessions = Counter.builder("beerscanner.webdriver.sessions")
+                .description("Selenium sessions borrowed from the pool, by whether they were created or reused")
+                .tag("outcome", "created")
+                .register(meterRegistry);
+        this.reusedSessions = Counter.builder("beerscanner.webdriver.sessions")
+                .description("Selenium sessions borrowed from the pool, by whether they were created or reused")
+                .tag("outcome", "reused")
+                .register(meterRegistry);
+        this.queueTimer = Timer.builder("beerscanner.webdriver.queue")
+                .description("Time spent queueing for a free Selenium slot")
+                .register(meterRegistry);
+        this.acquireTimer = Timer.builder("beerscanner.webdriver.acquire")
+                .description("Time spent getting a Selenium session once a slot is free, by health-checking or creating one")
+                .register(meterRegistry);
+        meterRegistry.gauge("beerscanner.webdriver.idle", idleSessions, ConcurrentLinkedDeque::size);
+        meterRegistry.gauge("beerscanner.webdriver.capacity", this, pool -> pool.capacity);
+    }
+
+    /**
+     * A semaphore whose number of permits can be changed.
+     */
+    static final class ResizableSemaphore extends Semaphore {
+
+        ResizableSemaphore(int permits) {
+            super(permits, true);
+        }
+
+        void resize(int from, int to) {
+            if (to > from) {
+                release(to - from);
+            } else if (to < from) {
+                // Borrowed sessions keep their permits, and fewer are handed out as they're returned
+                reducePermits(from - to);
+            }
+        }
+    }
+
+    /**
+     * A task run with a borrowed session.
+     *
+     * @param <T> the result type
+     */
+    @FunctionalInterface
+    public interface SessionTask<T> {
+        T run(WebDriver driver) throws Exception;
+    }
+
+    /**
+     * Creates new sessions for the pool.
+     */
+    @FunctionalInterface
+    interface SessionFactory {
+        WebDriver create() throws MalformedURLException;
+    }
+
+    private static final class PooledSession {
+        private final WebDriver driver;
+        private int uses;
+
+        private PooledSession(WebDriver driver) {
+            this.driver = driver;
+        }
+    }
+
+    /**
+     * Run a task with a session borrowed from the pool, waiting for a free session if they're all in use.
+     * The session is returned to the pool afterwards, unless the task crashed it.
+     *
+     * @param task the task
+     * @param <T> the result type
+     * @return the task's result
+     * @throws Exception if no session is free within the acquire timeout, or if the task fails
+     */
+    public <T> T withSession(SessionTask<T> task) throws Exception {
+        long queueStart = System.nanoTime();
+        if (!permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            queueTimer.record(System.nanoTime() - queueStart, TimeUnit.NANOSECONDS);
+            throw new IllegalStateException("No Selenium session became free within " + acquireTimeout);
+        }
+
+        long acquireStart = System.nanoTime();
+        queueTimer.record(acquireStart - queueStart, TimeUnit.NANOSECONDS);
+
+        PooledSession session;
+        try {
+            session = borrow();
+        } catch (Exception e) {
+            permits.release();
+            throw e;
+        }
+
+        long pageStart = System.nanoTime();
+        acquireTimer.record(pageStart - acquireStart, TimeUnit.NANOSECONDS);
+        session.uses++;
+
+        var crashed = false;
+        var succeeded = false;
+        try {
+            var result = task.run(session.driver);
+            succeeded = true;
+            return result;
+        } catch (Exception e) {
+            crashed = isCrash(e);
+            throw e;
+        } finally {
+            Timer.builder("beerscanner.webdriver.page")
+                    .description("Time spent scraping a page with a Selenium session")
+                    .tag("outcome", succeeded ? "success" : "failure")
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - pageStart, TimeUnit.NANOSECONDS);
+
+            if (crashed) {
+                LOGGER.warn("Selenium session crashed, replacing it");
+                quit(session);
+            } else {
+                giveBack(session);
+            }
+
+            permits.release();
+        }
+    }
+
+    /**
+     * Start discovering the grid's Chrome slots once the application is ready, right away and then every discovery
+     * interval, if no pool size is configured.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startDiscovery() {
+        if (!discoversCapacity()) {
+            return;
+        }
+
+        discoveryExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                refreshCapacity();
+            } catch (RuntimeException e) {
+                // An exception would stop the schedule, so later discoveries still run
+                LOGGER.warn("Failed to discover the Selenium grid's slots", e);
+            }
+        }, 0, discoveryInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private boolean discoversCapacity() {
+        return configuredPoolSize <= 0 && hubUrl != null && !hubUrl.isBlank();
+    }
+
+    /**
+     * Rediscover how many Chrome slots the grid has, if no pool size is configured. This runs on a schedule rather
+     * than when a session is borrowed, so scrapes never wait on the hub. If it can't be reached, the last known
+     * capacity is kept.
+     */
+    void refreshCapacity() {
+        if (!discoversCapacity()) {
+            return;
+        }
+
+        var slots = gridSlotDiscovery.discoverSlots(hubUrl);
+        if (slots.isEmpty()) {
+            return;
+        }
+
+        // With no Chrome slots up, keep one session so scrapes queue for the grid instead of failing outright
+        int newCapacity = Math.max(1, slots.getAsInt());
+        if (newCapacity == capacity) {
+            return;
+        }
+
+        LOGGER.info("Selenium grid has {} Chrome slots, running {} sessions at once (was {})", slots.getAsInt(), newCapacity, capacity);
+        permits.resize(capacity, newCapacity);
+        capacity = newCapacity;
+    }
+
+    /**
+     * Take a healthy idle session, or create one if there isn't any.
+     */
+    private PooledSession borrow() throws MalformedURLException {
+        PooledSession session;
+        while ((session = idleSessions.pollFirst()) != null) {
+            if (isHealthy(session)) {
+                reusedSessions.increment();
+                return session;
+            }
+
+            LOGGER.info("Discarding an unresponsive Selenium session");
+            quit(session);
+        }
+
+        var driver = sessionFactory.create();
+        createdSessions.increment();
+        return new PooledSession(driver);
+    }
+
+    /**
+     * Create a Chrome session on the Selenium hub.
+     */
+    private static WebDriver createRemoteSession(String hubUrl) throws MalformedURLException {
+        if (hubUrl == null || hubUrl.isBlank()) {
+            throw new IllegalStateException("No Selenium hub URL is configured");
+        }
+
+        var chromeOptions = new ChromeOptions();
+//        chromeOptions.addArguments("--headless");
+
+        // Augmented so DevTools commands can be sent through the hub
+        return new Augmenter().augment(new RemoteWebDriver(URI.create(hubUrl).toURL(), chromeOptions));
+    }
+
+    /**
+     * Reset a session and return it to the pool, or quit it if it's been used enough or can't be reset.
+     */
+    private void giveBack(PooledSession session) {
+        if (session.uses >= maxUses) {
+            LOGGER.debug("Recycling a Selenium session after {} uses", session.uses);
+            quit(session);
+            return;
+        }
+
+        if (idleSessions.size() >= capacity) {
+            // The grid shrank, so the session's slot is gone
+            quit(session);
+            return;
+        }
+
+        try {
+            // Cookies and storage can only be cleared for the current page's origin, so before navigating away
+            session.driver.manage().deleteAllCookies();
+            ((JavascriptExecutor) session.driver).executeScript("""
+                    try { window.localStorage.clear(); } catch (e) {}
+                    try { window.sessionStorage.clear(); } catch (e) {}""");
+            session.driver.get("about:blank");
+        } catch (WebDriverException e) {
+            LOGGER.info("Failed to reset a Selenium session, replacing it: {}", e.getMessage());
+            quit(session);
+            return;
+        }
+
+        idleSessions.offerFirst(session);
+    }
+
+    private static boolean isHealthy(PooledSession session) {
+        try {
+            session.driver.getWindowHandle();
+            return true;
+        } catch (WebDriverException e) {
+            return false;
+        }
+    }
+
+    private static boolean isCrash(Exception e) {
+        return e instanceof NoSuchSessionException
+                || e instanceof SessionNotCreatedException
+                || e instanceof UnreachableBrowserException;
+    }
+
+    private static void quit(PooledSession session) {
+        try {
+            session.driver.quit();
+        } catch (WebDriverException e) {
+            LOGGER.debug("Error quitting Selenium session", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        discoveryExecutor.shutdownNow();
+
+        PooledSession session;
+        while ((session = idleSessions.pollFirst()) != null) {
+            quit(session);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package is.yarr.beerscanner.scheduler;
+
+import is.yarr.beerscanner.model.Bar;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link BarCheckExecutor}.
+ */
+public class BarCheckExecutorTest {
+
+    private static List<Bar> bars(int count, boolean sameHost) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> Bar.builder()
+                        .name("Bar " + i)
+                        .menuUrl(sameHost ? "https://menus.example.com/" + i : "https://bar" + i + ".example.com/menu")
+                        .build())
+                .toList();
+    }
+
+    /**
+     * A check that records how many checks run at once, and succeeds after a short while.
+     */
+    private static class ConcurrencyTrackingCheck implements Predicate<Bar> {
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxRunning = new AtomicInteger();
+
+        @Override
+        public boolean test(Bar bar) {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                running.decrementAndGet();
+            }
+
+            return true;
+        }
+    }
+
+    @Test
+    public void testGlobalCapBoundsConcurrentChecks() {
+        var executor = new BarCheckExecutor(3, 10, Duration.ofSeconds(30));
+        var check = new ConcurrencyTrackingCheck();
+
+        var report = executor.runAll(bars(10, false), check);
+
+        assertEquals(3, check.maxRunning.get());
+        assertEquals(10, report.succeeded());
+        assertEquals(0, report.unfinished());
+    }
+
+    @Test
+    public void testPerHostCapBoundsChecksOfOneHost() {
+        var executor = new BarCheckExecutor(10, 2, Duration.ofSeconds(30));
+        var check = new ConcurrencyTrackingCheck();
+
+        var report = executor.runAll(bars(6, true), check);
+
+        assertEquals(2, check.maxRunning.get());
+        assertEquals(6, report.succeeded());
+    }
+
+    @Test
+    public void testPriorityChecksBypassGlobalCapButNotPerHostCap() {
+        var executor = new BarCheckExecutor(1, 2, Duration.ofSeconds(30));
+
+        var differentHosts = new ConcurrencyTrackingCheck();
+        executor.runAll(bars(4, false), differentHosts, true);
+        assertEquals(4, differentHosts.maxRunning.get());
+
+        var sameHost = new ConcurrencyTrackingCheck();
+        executor.runAll(bars(4, true), sameHost, true);
+        assertEquals(2, sameHost.maxRunning.get());
+    }
+
+    @Test
+    public void testChecksPastDeadlineAreUnfinished() {
+        var executor = new BarCheckExecutor(10, 10, Duration.ofMillis(300));
+        var hung = new CountDownLatch(1);
+
+        // Bars 0 to 3 finish right away (the odd ones failing), and bars 4 and 5 hang until they're interrupted
+        var report = executor.runAll(bars(6, false), bar -> {
+            int index = Integer.parseInt(bar.getName().substring("Bar ".length()));
+            if (index < 4) {
+                return index % 2 == 0;
+            }
+
+            try {
+                hung.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException("Interrupted", e);
+            }
+
+            return true;
+        });
+
+        assertEquals(6, report.total());
+        assertEquals(2, report.succeeded());
+        assertEquals(2, report.failed());
+        assertEquals(2, report.unfinished());
+    }
+
+    @Test
+    public void testBatchesShareRunDeadline() {
+        var executor = new BarCheckExecutor(10, 10, Duration.ofSeconds(30));
+        var deadline = Instant.now().plusMillis(300);
+
+        var first = executor.runAll(bars(2, false), new ConcurrencyTrackingCheck(), false, deadline);
+        assertEquals(2, first.succeeded());
+
+        // The second batch only gets what's left of the run's deadline, not a deadline of its own
+        var second = executor.runAll(bars(2, false), bar -> {
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException("Interrupted", e);
+            }
+
+            return true;
+        }, false, deadline);
+
+        assertEquals(2, second.unfinished());
+        assertTrue(second.wallTime().compareTo(Duration.ofSeconds(5)) < 0, "Batch ran for " + second.wallTime());
+    }
+
+    @Test
+    public void testInterruptedChecksHaveStoppedWhenRunReturns() {
+        var executor = new BarCheckExecutor(10, 10, Duration.ofMillis(200));
+        var running = new AtomicInteger();
+
+        executor.runAll(bars(3, false), bar -> {
+            running.incrementAndGet();
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                // Cleaning up after the interrupt takes a while
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException ignored) {
+                }
+            } finally {
+                running.decrementAndGet();
+            }
+
+            return false;
+        });
+
+        assertEquals(0, running.get());
+    }
+}
@@ -0,0 +1,81 @@
+package is.yarr.beerscanner.scheduler;
+
+import is.yarr.beerscanner.model.Bar;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for {@link SharedMenuFetches}.
+ */
+public class SharedMenuFetchesTest {
+
+    private static Bar bar(String menuUrl, String menuXPath) {
+        return Bar.builder()
+                .name(menuUrl)
+                .menuUrl(menuUrl)
+                .menuXPath(menuXPath)
+                .build();
+    }
+
+    private static BarCheckScheduler.MenuContent menu(String text) {
+        var content = text.getBytes(StandardCharsets.UTF_8);
+        return BarCheckScheduler.MenuContent.of(content, text, "application/pdf", BarCheckScheduler.MenuValidators.NONE);
+    }
+
+    @Test
+    public void testSameSourceWrittenDifferentlyHasSameKey() {
+        assertEquals(SharedMenuFetches.sourceKey(bar("https://Group.example.com/menus/../menu.pdf#page=2", null)),
+                SharedMenuFetches.sourceKey(bar("https://group.example.com/menu.pdf", null)));
+        assertEquals(SharedMenuFetches.sourceKey(bar("https://group.example.com", null)),
+                SharedMenuFetches.sourceKey(bar("https://group.example.com/", null)));
+    }
+
+    @Test
+    public void testDifferentXPathHasDifferentKey() {
+        assertNotEquals(SharedMenuFetches.sourceKey(bar("https://group.example.com/", "//a[1]")),
+                SharedMenuFetches.sourceKey(bar("https://group.example.com/", "//a[2]")));
+    }
+
+    @Test
+    public void testBarsWithSameSourceShareFetch() throws IOException {
+        var fetches = new SharedMenuFetches();
+        var fetched = new AtomicInteger();
+
+        var first = fetches.fetch(bar("https://group.example.com/menu.pdf", null), bar -> {
+            fetched.incrementAndGet();
+            return menu("menu");
+        });
+        var second = fetches.fetch(bar("https://group.example.com/menu.pdf", null), bar -> {
+            fetched.incrementAndGet();
+            return menu("menu");
+        });
+        fetches.fetch(bar("https://other.example.com/menu.pdf", null), bar -> {
+            fetched.incrementAndGet();
+            return menu("other menu");
+        });
+
+        assertSame(first, second);
+        assertEquals(2, fetched.get());
+    }
+
+    @Test
+    public void testBarsFetchSeparatelyAfterFailedOrNotModifiedFetch() throws IOException {
+        var fetches = new SharedMenuFetches();
+
+        assertThrows(IOException.class, () -> fetches.fetch(bar("https://group.example.com/menu.pdf", null), bar -> {
+            throw new IOException("Connection reset");
+        }));
+        assertEquals("menu", fetches.fetch(bar("https://group.example.com/menu.pdf", null), bar -> menu("menu")).hash());
+
+        fetches.fetch(bar("https://group.example.com/other.pdf", null), bar -> BarCheckScheduler.MenuContent.notModified(null));
+        assertEquals("other", fetches.fetch(bar("https://group.example.com/other.pdf", null), bar -> menu("other")).hash());
+    }
+}
@@ -0,0 +1,186 @@
+package is.yarr.beerscanner.service;
+
+import is.yarr.beerscanner.model.Bar;
+import is.yarr.beerscanner.model.BarCheck;
+import is.yarr.beerscanner.repository.BarBeerCurrentRepository;
+import is.yarr.beerscanner.repository.BarCheckRepository;
+import is.yarr.beerscanner.repository.BarRepository;
+import is.yarr.beerscanner.service.menu.ImageMenuProcessor;
+import is.yarr.beerscanner.service.menu.ImagePixelCanonicalizer;
+import is.yarr.beerscanner.service.menu.MenuBlobStore;
+import is.yarr.beerscanner.service.menu.MenuDigest;
+import is.yarr.beerscanner.service.menu.PdfTextLayerExtractor;
+import is.yarr.beerscanner.service.menu.SemanticHashService;
+import is.yarr.beerscanner.service.openai.BeerListOutput;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for change detection in {@link BarCheckService#createCheck} and for {@link BarCheckService#extractBeers}.
+ */
+public class BarCheckServiceTest {
+
+    private final SemanticHashService semanticHashService = new SemanticHashService(List.of(new ImagePixelCanonicalizer()));
+
+    private final BarCheckRepository barCheckRepository = mock(BarCheckRepository.class);
+    private final OpenAIService openAIService = mock(OpenAIService.class);
+    private final MenuBlobStore menuBlobStore = mock(MenuBlobStore.class);
+    private final DeltaExtractionService deltaExtractionService = mock(DeltaExtractionService.class);
+
+    private BarCheckService barCheckService;
+
+    @BeforeEach
+    public void setUp() {
+        when(barCheckRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        barCheckService = new BarCheckService(barCheckRepository, mock(BarRepository.class), mock(BeerService.class),
+                mock(NotificationService.class), openAIService, mock(ScraperService.class),
+                mock(BarBeerCurrentRepository.class), mock(CheckCadenceService.class), menuBlobStore,
+                mock(PdfTextLayerExtractor.class), deltaExtractionService, new SharedExtractionCache(Duration.ofMinutes(10)),
+                "test-instance", Duration.ofMinutes(30));
+    }
+
+    private static byte[] menuImage(String changedPrice) throws IOException {
+        var image = new BufferedImage(600, 1200, BufferedImage.TYPE_INT_RGB);
+        var graphics = image.createGraphics();
+        graphics.setColor(Color.DARK_GRAY);
+        graphics.fillRect(0, 0, 600, 1200);
+        graphics.setColor(Color.WHITE);
+        graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 24));
+
+        for (int i = 0; i < 30; i++) {
+            var price = i == 0 ? changedPrice : "$7";
+            graphics.drawString("Beer number " + i + "  IPA  6.5%  " + price, 40, 40 + i * 38);
+        }
+
+        graphics.dispose();
+
+        var out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    private BarCheck check(Bar bar, byte[] menu) throws IOException {
+        var menuHash = MenuDigest.of(menu);
+        var semanticHash = semanticHashService.semanticHash(menu, ImageMenuProcessor.CONTENT_TYPE, menuHash);
+
+        return barCheckService.createCheck(bar, false, menu, ImageMenuProcessor.CONTENT_TYPE, menuHash, semanticHash, 0);
+    }
+
+    private static BeerListOutput.BeerOutput beer(String name) {
+        var beer = new BeerListOutput.BeerOutput();
+        beer.name = name;
+        return beer;
+    }
+
+    /**
+     * Create a text menu check with a previous completed check, so its changes can be extracted.
+     */
+    private BarCheck textCheck(Bar bar, long id, String menu, String previousMenu) throws IOException {
+        var previousCheck = new BarCheck();
+        previousCheck.setId(id - 1);
+        previousCheck.setBar(bar);
+        previousCheck.setContentType("text/plain");
+        previousCheck.setMenuBlobKey(previousMenu);
+        when(menuBlobStore.get(previousMenu)).thenReturn(previousMenu.getBytes(StandardCharsets.UTF_8));
+        when(barCheckRepository.findFirstByBarAndIdLessThanAndHasChangesTrueAndProcessingStatusOrderByIdDesc(bar, id, BarCheck.ProcessingStatus.COMPLETED))
+                .thenReturn(Optional.of(previousCheck));
+
+        var check = new BarCheck();
+        check.setId(id);
+        check.setBar(bar);
+        check.setHasChanges(true);
+        check.setContentType("text/plain");
+        check.setMenuHash(MenuDigest.of(menu.getBytes(StandardCharsets.UTF_8)));
+        check.setMenuBlobKey(menu);
+        when(menuBlobStore.get(menu)).thenReturn(menu.getBytes(StandardCharsets.UTF_8));
+        return check;
+    }
+
+    @Test
+    public void testChangesAreNotSharedWithBarsWithTheSameMenu() throws IOException {
+        var menu = "Pils\nStout\nSour";
+        var firstBar = Bar.builder().id(1L).name("First Bar").build();
+        var secondBar = Bar.builder().id(2L).name("Second Bar").build();
+        var firstCheck = textCheck(firstBar, 10, menu, "Pils\nStout");
+        var secondCheck = textCheck(secondBar, 20, menu, "Pils\nSour");
+
+        // Each bar's changes are applied to its own previous beers
+        when(deltaExtractionService.extractBeers(eq("Pils\nStout"), eq(menu), any(), any()))
+                .thenReturn(Optional.of(List.of(beer("Pils"), beer("Stout"), beer("Sour"))));
+        when(deltaExtractionService.extractBeers(eq("Pils\nSour"), eq(menu), any(), any()))
+                .thenReturn(Optional.of(List.of(beer("Pils"), beer("Sour"), beer("Stout"))));
+
+        var first = barCheckService.extractBeers(firstCheck, firstBar);
+        var second = barCheckService.extractBeers(secondCheck, secondBar);
+
+        assertFalse(second.shared());
+        assertEquals(BarCheck.ExtractionMode.DELTA, secondCheck.getExtractionMode());
+        assertEquals(List.of("Pils", "Stout", "Sour"), first.beers().stream().map(beer -> beer.name).toList());
+        assertEquals(List.of("Pils", "Sour", "Stout"), second.beers().stream().map(beer -> beer.name).toList());
+        verify(openAIService, never()).extractBeersFromMenu(any(), any(), any());
+    }
+
+    @Test
+    public void testWholeMenuIsSharedWithBarsWithTheSameMenu() throws IOException {
+        var menu = "Pils\nStout\nSour";
+        var firstBar = Bar.builder().id(1L).name("First Bar").build();
+        var secondBar = Bar.builder().id(2L).name("Second Bar").build();
+        var firstCheck = textCheck(firstBar, 10, menu, "Pils\nStout");
+        var secondCheck = textCheck(secondBar, 20, menu, "Pils\nSour");
+
+        // The changes can't be extracted, so the whole menu is, once for both bars
+        when(deltaExtractionService.extractBeers(any(), any(), any(), any())).thenReturn(Optional.empty());
+        when(openAIService.extractBeersFromMenu(any(), eq("text/plain"), any()))
+                .thenReturn(List.of(beer("Pils"), beer("Stout"), beer("Sour")));
+
+        barCheckService.extractBeers(firstCheck, firstBar);
+        var second = barCheckService.extractBeers(secondCheck, secondBar);
+
+        assertEquals(BarCheck.ExtractionMode.TEXT, firstCheck.getExtractionMode());
+        assertTrue(second.shared());
+        verify(openAIService).extractBeersFromMenu(any(), any(), any());
+    }
+
+    @Test
+    public void testOneLineChangeOnImageMenuIsDetected() throws IOException {
+        var bar = Bar.builder().name("Image Menu Bar").build();
+        check(bar, menuImage("$7"));
+
+        // A one-line price change on an otherwise identical image is still a change
+        var check = check(bar, menuImage("$8"));
+
+        assertTrue(check.isHasChanges());
+    }
+
+    @Test
+    public void testSameImageMenuIsUnchanged() throws IOException {
+        var bar = Bar.builder().name("Image Menu Bar").build();
+        check(bar, menuImage("$7"));
+
+        var check = check(bar, menuImage("$7"));
+
+        assertFalse(check.isHasChanges());
+    }
+}
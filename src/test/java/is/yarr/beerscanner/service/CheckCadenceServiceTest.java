@@ -0,0 +1,121 @@
+package is.yarr.beerscanner.service;
+
+import is.yarr.beerscanner.model.Bar;
+import is.yarr.beerscanner.model.BarCheck;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the interval calculation and slot alignment of {@link CheckCadenceService}.
+ */
+public class CheckCadenceServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    private final CheckCadenceService cadenceService = new CheckCadenceService(null, Duration.ofHours(6), Duration.ofDays(7),
+            Duration.ofHours(2), Duration.ofHours(1));
+
+    private static Bar bar(long id, LocalTime opensAt) {
+        var bar = Bar.builder().id(id).build();
+        bar.setOpensAt(opensAt);
+        return bar;
+    }
+
+    private static BarCheck check(int daysAgo, boolean hasChanges, BarCheck.ProcessingStatus status) {
+        return BarCheck.builder()
+                .createdAt(NOW.minusDays(daysAgo))
+                .hasChanges(hasChanges)
+                .processingStatus(status)
+                .build();
+    }
+
+    @Test
+    public void testNoHistoryUsesMinimumInterval() {
+        assertEquals(Duration.ofHours(6), cadenceService.computeInterval(List.of(), NOW));
+    }
+
+    @Test
+    public void testFrequentChangesUseShortInterval() {
+        var checks = List.of(
+                check(0, true, BarCheck.ProcessingStatus.COMPLETED),
+                check(1, true, BarCheck.ProcessingStatus.COMPLETED),
+                check(2, true, BarCheck.ProcessingStatus.COMPLETED),
+                check(3, false, BarCheck.ProcessingStatus.COMPLETED));
+
+        // 3 changes over 3 days
+        assertEquals(Duration.ofHours(18), cadenceService.computeInterval(checks, NOW));
+    }
+
+    @Test
+    public void testRareChangesAreClampedToMaximumInterval() {
+        var checks = List.of(
+                check(5, false, BarCheck.ProcessingStatus.COMPLETED),
+                check(10, false, BarCheck.ProcessingStatus.COMPLETED),
+                check(20, false, BarCheck.ProcessingStatus.COMPLETED));
+
+        assertEquals(Duration.ofDays(7), cadenceService.computeInterval(checks, NOW));
+    }
+
+    @Test
+    public void testFailedChecksAreIgnored() {
+        var checks = List.of(
+                check(1, false, BarCheck.ProcessingStatus.COMPLETED),
+                check(30, true, BarCheck.ProcessingStatus.FAILED));
+
+        assertEquals(Duration.ofDays(1), cadenceService.computeInterval(checks, NOW));
+    }
+
+    @Test
+    public void testSpreadSlotIsWithinOneWindowAfterDueTime() {
+        var due = NOW.plusHours(6);
+
+        for (long id = 1; id <= 50; id++) {
+            var slot = cadenceService.spread(bar(id, null), due);
+            assertFalse(slot.isBefore(due), "Slot before due time for bar " + id);
+            assertTrue(slot.isBefore(due.plusHours(2)), "Slot a whole window after due time for bar " + id);
+        }
+    }
+
+    @Test
+    public void testSpreadSlotsAreDeterministicAndDistinct() {
+        var due = NOW.plusDays(1);
+        var slots = new HashSet<LocalDateTime>();
+
+        for (long id = 1; id <= 20; id++) {
+            var slot = cadenceService.spread(bar(id, null), due);
+            assertEquals(slot, cadenceService.spread(bar(id, null), due));
+            slots.add(slot);
+        }
+
+        // Consecutive IDs shouldn't share a slot, which would put them in the same run
+        assertEquals(20, slots.size());
+    }
+
+    @Test
+    public void testDailyChecksAreAlignedBeforeOpening() {
+        var bar = bar(7, LocalTime.of(16, 0));
+        var nextCheckAt = cadenceService.align(bar, NOW, Duration.ofDays(3));
+
+        // Due at noon, so the last slot before opening that isn't after that is the previous afternoon
+        assertEquals(NOW.toLocalDate().plusDays(2), nextCheckAt.toLocalDate());
+        assertFalse(nextCheckAt.toLocalTime().isAfter(LocalTime.of(15, 0)));
+        assertTrue(nextCheckAt.toLocalTime().isAfter(LocalTime.of(13, 0)));
+    }
+
+    @Test
+    public void testFrequentChecksIgnoreOpeningTime() {
+        var bar = bar(7, LocalTime.of(16, 0));
+        var nextCheckAt = cadenceService.align(bar, NOW, Duration.ofHours(6));
+
+        assertEquals(cadenceService.spread(bar, NOW.plusHours(6)), nextCheckAt);
+    }
+}
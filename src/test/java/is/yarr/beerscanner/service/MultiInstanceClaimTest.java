@@ -0,0 +1,180 @@
+package is.yarr.beerscanner.service;
+
+import is.yarr.beerscanner.beerscanner.BeerScannerApplication;
+import is.yarr.beerscanner.model.Bar;
+import is.yarr.beerscanner.model.BarCheck;
+import is.yarr.beerscanner.repository.BarCheckRepository;
+import is.yarr.beerscanner.repository.BarRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that several application instances sharing one database divide bars and checks between them.
+ * Each instance is a separate application context with its own instance ID, sharing an in-memory H2 database that
+ * only holds this test's data.
+ */
+public class MultiInstanceClaimTest {
+
+    private static final int CLAIM_BATCH_SIZE = 3;
+
+    private static final Instant RUN_DEADLINE = Instant.now().plus(Duration.ofHours(2));
+
+    private ConfigurableApplicationContext first;
+    private ConfigurableApplicationContext second;
+
+    private final List<Bar> bars = new ArrayList<>();
+
+    private static ConfigurableApplicationContext startInstance(String database, String instanceId) {
+        // Command line arguments, so they take precedence over application.properties
+        return new SpringApplicationBuilder(BeerScannerApplication.class)
+                .run("--app.instance-id=" + instanceId,
+                        "--app.scheduler.bar-check.claim-batch-size=" + CLAIM_BATCH_SIZE,
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:" + database + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect");
+    }
+
+    @BeforeEach
+    public void setUp() {
+        var database = "claim-test-" + UUID.randomUUID();
+        first = startInstance(database, "instance-a");
+        second = startInstance(database, "instance-b");
+
+        var barRepository = first.getBean(BarRepository.class);
+        for (int i = 0; i < 20; i++) {
+            bars.add(barRepository.save(Bar.builder()
+                    .name("Claim Test Bar " + i)
+                    .location("Test Location")
+                    .menuUrl("https://example.com/menu-" + i)
+                    .isApproved(true)
+                    .build()));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        var barCheckRepository = first.getBean(BarCheckRepository.class);
+        var barRepository = first.getBean(BarRepository.class);
+        for (Bar bar : bars) {
+            barCheckRepository.deleteAll(barCheckRepository.findTop20ByBarOrderByCreatedAtDesc(bar));
+            barRepository.deleteById(bar.getId());
+        }
+
+        second.close();
+        first.close();
+    }
+
+    /**
+     * Claim batches of bars until there are none left, as a scheduled run does.
+     */
+    private static Set<Long> claimAll(ConfigurableApplicationContext instance) {
+        var barService = instance.getBean(BarService.class);
+        var claimed = new HashSet<Long>();
+
+        List<Bar> batch;
+        while (!(batch = barService.claimBarsToCheck(RUN_DEADLINE)).isEmpty()) {
+            assertTrue(batch.size() <= CLAIM_BATCH_SIZE, "Claimed more bars than the batch size: " + batch.size());
+            batch.forEach(bar -> claimed.add(bar.getId()));
+        }
+
+        return claimed;
+    }
+
+    @Test
+    public void testClaimsAreBatched() {
+        var barService = first.getBean(BarService.class);
+
+        assertEquals(CLAIM_BATCH_SIZE, barService.claimBarsToCheck(RUN_DEADLINE).size());
+        assertEquals(CLAIM_BATCH_SIZE, barService.claimBarsToCheck(RUN_DEADLINE).size());
+    }
+
+    @Test
+    public void testLeaseOutlastsRunDeadline() {
+        var claimed = first.getBean(BarService.class).claimBarsToCheck(RUN_DEADLINE);
+
+        var deadline = LocalDateTime.ofInstant(RUN_DEADLINE, ZoneId.systemDefault());
+        for (Bar bar : claimed) {
+            assertTrue(bar.getLeaseExpiresAt().isAfter(deadline), "Lease expires before the run's deadline: " + bar.getLeaseExpiresAt());
+        }
+    }
+
+    @Test
+    public void testConcurrentInstancesClaimDisjointBars() {
+        var claims = runConcurrently(() -> claimAll(first), () -> claimAll(second));
+
+        var firstIds = claims.get(0);
+        var secondIds = claims.get(1);
+
+        var overlap = new HashSet<>(firstIds);
+        overlap.retainAll(secondIds);
+        assertTrue(overlap.isEmpty(), "Bars claimed by both instances: " + overlap);
+
+        var claimed = new HashSet<>(firstIds);
+        claimed.addAll(secondIds);
+        for (Bar bar : bars) {
+            assertTrue(claimed.contains(bar.getId()), "Bar not claimed by either instance: " + bar.getId());
+        }
+
+        // Leased bars aren't claimable again until their checks are recorded or the leases expire
+        assertTrue(first.getBean(BarService.class).claimBarsToCheck(RUN_DEADLINE).isEmpty(), "Leased bars claimed again");
+    }
+
+    @Test
+    public void testCheckIsClaimedByOneInstance() {
+        var check = first.getBean(BarCheckRepository.class).save(BarCheck.builder()
+                .bar(bars.get(0))
+                .hasChanges(false)
+                .processingStatus(BarCheck.ProcessingStatus.PENDING)
+                .build());
+
+        var claims = runConcurrently(
+                () -> first.getBean(BarCheckService.class).claimCheck(check.getId()),
+                () -> second.getBean(BarCheckService.class).claimCheck(check.getId()));
+
+        assertEquals(1, claims.stream().filter(Boolean::booleanValue).count());
+
+        var claimedCheck = first.getBean(BarCheckRepository.class).findById(check.getId()).orElseThrow();
+        assertEquals(BarCheck.ProcessingStatus.PROCESSING, claimedCheck.getProcessingStatus());
+        assertTrue(Set.of("instance-a", "instance-b").contains(claimedCheck.getLeaseOwner()));
+    }
+
+    @SafeVarargs
+    private static <T> List<T> runConcurrently(Supplier<T>... tasks) {
+        var start = new CountDownLatch(1);
+        var futures = new ArrayList<CompletableFuture<T>>();
+        for (var task : tasks) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return task.get();
+            }));
+        }
+
+        start.countDown();
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+}
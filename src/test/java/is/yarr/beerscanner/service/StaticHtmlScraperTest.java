@@ -0,0 +1,63 @@
+package is.yarr.beerscanner.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link StaticHtmlScraper}.
+ */
+public class StaticHtmlScraperTest {
+
+    private final StaticHtmlScraper scraper = new StaticHtmlScraper(20);
+
+    private Optional<String> scrape(String html, String xpath) throws IOException {
+        return scraper.scrape(new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8)), "https://bar.example.com/", xpath);
+    }
+
+    @Test
+    public void testExtractsTextLikeTheBrowserScript() throws IOException {
+        var html = """
+                <html><body>
+                <div class="taps">
+                  <h2>On   tap</h2>
+                  <script>renderTaps();</script>
+                  <style>.tap { color: red; }</style>
+                  <ul>
+                    <li><b>Hazy IPA</b> - 6.5%</li>
+                    <li><b>Pilsner</b>&nbsp;&nbsp;4.8%<!-- new --></li>
+                  </ul>
+                </div>
+                <div class="taps"><p>Cask: Bitter 3.9%</p></div>
+                </body></html>
+                """;
+
+        assertEquals(Optional.of("[\"On tap Hazy IPA - 6.5% Pilsner 4.8%\",\"Cask: Bitter 3.9%\"]"),
+                scrape(html, "//div[@class='taps']"));
+    }
+
+    @Test
+    public void testEmptyMenuNeedsBrowser() throws IOException {
+        var html = """
+                <html><body><div id="menu"></div><script src="/untappd-embed.js"></script></body></html>
+                """;
+
+        assertTrue(scrape(html, "//div[@id='menu']").isEmpty());
+        assertTrue(scrape(html, "//div[@id='taps']").isEmpty());
+    }
+
+    @Test
+    public void testUnrenderedTemplateNeedsBrowser() throws IOException {
+        var html = """
+                <html><body><ul id="menu"><li>{{ beer.name }} from {{ beer.brewery }} at {{ beer.abv }}</li></ul></body></html>
+                """;
+
+        assertTrue(scrape(html, "//ul[@id='menu']").isEmpty());
+    }
+}
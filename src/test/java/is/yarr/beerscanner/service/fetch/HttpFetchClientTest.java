@@ -0,0 +1,92 @@
+package is.yarr.beerscanner.service.fetch;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for {@link HttpFetchClient}, against a local HTTP server.
+ */
+public class HttpFetchClientTest {
+
+    private HttpServer server;
+    private HttpFetchClient client;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.start();
+
+        client = new HttpFetchClient(Duration.ofSeconds(5), Duration.ofSeconds(5), Duration.ofSeconds(5),
+                "BeerScannerTest", new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        client.shutdown();
+        server.stop(0);
+    }
+
+    private String serve(int status, byte[] body) {
+        server.createContext("/menu", exchange -> {
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(status, status == 304 || body.length == 0 ? -1 : body.length);
+            if (body.length > 0) {
+                exchange.getResponseBody().write(body);
+            }
+            exchange.close();
+        });
+
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/menu";
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testGzipNotModifiedHasEmptyBody() throws IOException {
+        var url = serve(304, new byte[0]);
+
+        try (var response = client.get(url, Map.of("If-None-Match", "\"menu-1\""))) {
+            assertEquals(304, response.status());
+            assertEquals(0, response.body().readAllBytes().length);
+        }
+    }
+
+    @Test
+    public void testEmptyGzipBodyIsEmpty() throws IOException {
+        var url = serve(200, new byte[0]);
+
+        try (var response = client.get(url)) {
+            assertEquals(200, response.status());
+            assertEquals(0, response.body().readAllBytes().length);
+        }
+    }
+
+    @Test
+    public void testGzipBodyIsDecoded() throws IOException {
+        var url = serve(200, gzip("Pilsner 4.8%"));
+
+        try (var response = client.get(url)) {
+            assertEquals("Pilsner 4.8%", new String(response.body().readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package is.yarr.beerscanner.service.menu;
+
+import org.imgscalr.Scalr;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Compares heap allocation and time per image of the old image menu pipeline (full decode, QUALITY resize, PNG) with
+ * {@link ImageMenuProcessor}. Not a test, run manually:
+ * <pre>
+ * java -Xmx2g -cp ... is.yarr.beerscanner.service.menu.ImageMenuProcessorBenchmark [width] [height] [runs]
+ * </pre>
+ * Defaults to a 48 MP (8000x6000) JPEG, like a phone photo of a chalkboard.
+ */
+public class ImageMenuProcessorBenchmark {
+
+    private interface Pipeline {
+        byte[] process(byte[] image) throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : 8000;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : 6000;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        var photo = createPhoto(width, height);
+        System.out.printf("Source: %dx%d JPEG, %d KB%n", width, height, photo.length / 1024);
+
+        var processor = new ImageMenuProcessor(1000, 0.85f);
+
+        run("Before (full decode, QUALITY, PNG)", photo, runs, ImageMenuProcessorBenchmark::previousPipeline);
+        run("After (subsampled decode, BALANCED, JPEG)", photo, runs, image -> processor.process(new ByteArrayInputStream(image)));
+    }
+
+    /**
+     * The pipeline before {@link ImageMenuProcessor}.
+     */
+    private static byte[] previousPipeline(byte[] image) throws IOException {
+        var original = ImageIO.read(new ByteArrayInputStream(image));
+        var mode = original.getWidth() > original.getHeight() ? Scalr.Mode.FIT_TO_WIDTH : Scalr.Mode.FIT_TO_HEIGHT;
+        var resized = Scalr.resize(original, Scalr.Method.QUALITY, mode, 1000, 1000);
+
+        var out = new ByteArrayOutputStream();
+        ImageIO.write(resized, "png", out);
+        return out.toByteArray();
+    }
+
+    private static void run(String name, byte[] image, int runs, Pipeline pipeline) throws IOException {
+        // Warm up
+        pipeline.process(image);
+
+        var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        long totalNanos = 0;
+        long totalAllocated = 0;
+        int outputSize = 0;
+        for (int i = 0; i < runs; i++) {
+            long allocatedBefore = threadBean.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+
+            outputSize = pipeline.process(image).length;
+
+            totalNanos += System.nanoTime() - start;
+            totalAllocated += threadBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        }
+
+        System.out.printf("%-45s %6d ms/image %6d MB allocated/image %5d KB output%n", name,
+                totalNanos / runs / 1_000_000, totalAllocated / runs / (1024 * 1024), outputSize / 1024);
+    }
+
+    /**
+     * Create a photo-like JPEG: a gradient background with some text, so it compresses like a real photo rather than
+     * a flat image.
+     */
+    private static byte[] createPhoto(int width, int height) throws IOException {
+        var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        var graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, new Color(40, 45, 40), width, height, new Color(70, 80, 75)));
+        graphics.fillRect(0, 0, width, height);
+
+        graphics.setColor(Color.WHITE);
+        graphics.setFont(new Font(Font.SANS_SERIF, Font.BOLD, height / 20));
+        for (int i = 0; i < 12; i++) {
+            graphics.drawString("Tap " + (i + 1) + " - Hazy IPA 6.5%", width / 10, height / 10 + i * height / 14);
+        }
+
+        // Noise, so the JPEG isn't unrealistically small
+        var random = new Random(42);
+        for (int i = 0; i < width * height / 50; i++) {
+            image.setRGB(random.nextInt(width), random.nextInt(height), random.nextInt(0xFFFFFF));
+        }
+
+        graphics.dispose();
+
+        var out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,57 @@
+package is.yarr.beerscanner.service.menu;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link LineDiff}.
+ */
+public class LineDiffTest {
+
+    @Test
+    public void testLinesSplitsScrapedElements() {
+        var lines = LineDiff.lines("[\"Draft\\n  Hazy IPA 6.5%\", \"\", \"Pilsner 4.8%  \"]");
+
+        assertEquals(List.of("Draft", "Hazy IPA 6.5%", "Pilsner 4.8%"), lines);
+    }
+
+    @Test
+    public void testLinesSplitsPlainText() {
+        var lines = LineDiff.lines("Draft\r\n\r\nHazy IPA 6.5%\n[Cask] Bitter 3.9%");
+
+        assertEquals(List.of("Draft", "Hazy IPA 6.5%", "[Cask] Bitter 3.9%"), lines);
+    }
+
+    @Test
+    public void testChangedDatesAreNotChanges() {
+        var diff = LineDiff.of(List.of("Updated 3/14/2025", "Hazy IPA 6.5%"), List.of("Updated 3/15/2025", "Hazy IPA 6.5%"));
+
+        assertTrue(diff.isEmpty());
+        assertEquals(2, diff.unchanged());
+    }
+
+    @Test
+    public void testReportsSwappedTaps() {
+        var diff = LineDiff.of(
+                List.of("Hazy IPA 6.5%", "Pilsner 4.8%", "Stout 7.2%", "Sour 5.0%"),
+                List.of("Hazy IPA 6.5%", "Pilsner 4.8%", "Porter 6.0%", "Sour 5.0%"));
+
+        assertEquals(List.of("Stout 7.2%"), diff.removed());
+        assertEquals(List.of("Porter 6.0%"), diff.added());
+        assertEquals(3, diff.unchanged());
+        assertEquals(0.25, diff.addedRatio());
+    }
+
+    @Test
+    public void testRejectsMenusTooLongToDiff() {
+        var lines = Collections.nCopies(3000, "Hazy IPA 6.5%");
+
+        assertThrows(IllegalArgumentException.class, () -> LineDiff.of(lines, lines));
+    }
+}
@@ -0,0 +1,71 @@
+package is.yarr.beerscanner.service.menu;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for {@link MenuBlobStore}.
+ */
+public class MenuBlobStoreTest {
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    public void testStoredMenuCanBeReadBack() throws IOException {
+        var store = new MenuBlobStore(dataDir.toString());
+        var content = "%PDF-1.7 a menu".getBytes(StandardCharsets.US_ASCII);
+
+        var key = store.put(content);
+
+        assertEquals(64, key.length());
+        assertArrayEquals(content, store.get(key));
+    }
+
+    @Test
+    public void testIdenticalMenusAreStoredOnce() throws IOException {
+        var store = new MenuBlobStore(dataDir.toString());
+        var content = "Pale Ale 5.2%".getBytes(StandardCharsets.UTF_8);
+
+        var first = store.put(content);
+        var second = store.put(content);
+
+        assertEquals(first, second);
+        try (var files = Files.walk(dataDir)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    public void testSameDownloadProcessedDifferentlyIsStoredSeparately() throws IOException {
+        var store = new MenuBlobStore(dataDir.toString());
+
+        // The same downloaded image, resized to PNG by one version and to JPEG by the next
+        var png = "\u0089PNG resized menu".getBytes(StandardCharsets.ISO_8859_1);
+        var jpeg = "\u00ff\u00d8\u00ff resized menu".getBytes(StandardCharsets.ISO_8859_1);
+
+        var pngKey = store.put(png);
+        var jpegKey = store.put(jpeg);
+
+        assertNotEquals(pngKey, jpegKey);
+        assertArrayEquals(png, store.get(pngKey));
+        assertArrayEquals(jpeg, store.get(jpegKey));
+    }
+
+    @Test
+    public void testKeysOutsideTheStoreAreRejected() {
+        var store = new MenuBlobStore(dataDir.toString());
+
+        assertThrows(IllegalArgumentException.class, () -> store.get("../../etc/passwd"));
+    }
+}
@@ -0,0 +1,56 @@
+package is.yarr.beerscanner.service.menu;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for the size and page limits of {@link PdfMenuProcessor}.
+ */
+public class PdfMenuProcessorTest {
+
+    private final PdfMenuProcessor processor = new PdfMenuProcessor(DataSize.ofKilobytes(64), 3, DataSize.ofKilobytes(16));
+
+    private static byte[] pdf(int pages) throws IOException {
+        try (var document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                document.addPage(new PDPage());
+            }
+
+            var out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    @Test
+    public void testSmallPdfIsUnchanged() throws IOException {
+        var pdf = pdf(2);
+        assertArrayEquals(pdf, processor.process(new ByteArrayInputStream(pdf), (long) pdf.length));
+    }
+
+    @Test
+    public void testLongPdfIsTrimmed() throws IOException {
+        var trimmed = processor.process(new ByteArrayInputStream(pdf(8)), null);
+
+        try (var document = PDDocument.load(trimmed)) {
+            assertEquals(3, document.getNumberOfPages());
+        }
+    }
+
+    @Test
+    public void testOversizedPdfIsRejected() {
+        // Rejected by the content length before reading, and by counting when there is none
+        assertThrows(IOException.class, () -> processor.process(new ByteArrayInputStream(new byte[0]), 1024L * 1024));
+        assertThrows(IOException.class, () -> processor.process(new ByteArrayInputStream(new byte[128 * 1024]), null));
+    }
+}
@@ -0,0 +1,101 @@
+package is.yarr.beerscanner.service.menu;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Tests that cosmetic menu changes keep the same semantic hash, while real changes don't.
+ */
+public class SemanticHashServiceTest {
+
+    private final SemanticHashService semanticHashService = new SemanticHashService(List.of(
+            new PdfTextCanonicalizer(DataSize.ofKilobytes(16)), new PlainTextCanonicalizer(), new ImagePixelCanonicalizer()));
+
+    private String textHash(String text) {
+        var content = text.getBytes(StandardCharsets.UTF_8);
+        return semanticHashService.semanticHash(content, "text/plain", MenuDigest.of(content));
+    }
+
+    private String pdfHash(String text, int year) throws IOException {
+        var content = pdf(text, year);
+        return semanticHashService.semanticHash(content, "application/pdf", MenuDigest.of(content));
+    }
+
+    private static byte[] pdf(String text, int year) throws IOException {
+        try (var document = new PDDocument()) {
+            var page = new PDPage();
+            document.addPage(page);
+
+            try (var contentStream = new PDPageContentStream(document, page)) {
+                contentStream.beginText();
+                contentStream.setFont(PDType1Font.HELVETICA, 12);
+                contentStream.newLineAtOffset(50, 700);
+                contentStream.showText(text);
+                contentStream.endText();
+            }
+
+            var created = Calendar.getInstance();
+            created.set(year, Calendar.JANUARY, 1);
+            document.getDocumentInformation().setCreationDate(created);
+
+            var out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    @Test
+    public void testTextDatesAndWhitespaceAreIgnored() {
+        assertEquals(
+                textHash("Last updated June 1st, 2025 at 4:30 PM\nHazy IPA 6.5%   Pilsner 4.8%"),
+                textHash("Last updated 2025-06-02 at 16:45\n  Hazy IPA 6.5% Pilsner 4.8%"));
+    }
+
+    @Test
+    public void testTextBeerChangesAreDetected() {
+        assertNotEquals(
+                textHash("Hazy IPA 6.5% Pilsner 4.8%"),
+                textHash("Hazy IPA 6.5% Stout 5.5%"));
+    }
+
+    @Test
+    public void testOtherDateFormatsAreIgnored() {
+        assertEquals(textHash("Updated Jun. 3 - Hazy IPA 6.5%"), textHash("Updated Sept 14 - Hazy IPA 6.5%"));
+        assertEquals(textHash("Updated 6/1/2025 - Hazy IPA 6.5%"), textHash("Updated 14.06.2025 - Hazy IPA 6.5%"));
+        assertEquals(textHash("Updated 01.06.25 - Hazy IPA 6.5%"), textHash("Updated 3 March 2025 - Hazy IPA 6.5%"));
+    }
+
+    @Test
+    public void testBeerNamesStartingWithMonthsAreNotDates() {
+        assertNotEquals(textHash("Octoberfest 5.8%"), textHash("Octoberfest 6.8%"));
+        assertNotEquals(textHash("Marzen 16 oz $7"), textHash("Marzen 20 oz $7"));
+        assertNotEquals(textHash("Mayhem 8%"), textHash("Mayhem 9%"));
+        assertNotEquals(textHash("Junebug 5%"), textHash("Junebug 6%"));
+        assertNotEquals(textHash("7 Augustiner Helles"), textHash("8 Augustiner Helles"));
+    }
+
+    @Test
+    public void testSizeListsAreNotDates() {
+        assertNotEquals(textHash("Pilsner 12/16/20 oz"), textHash("Pilsner 12/16/24 oz"));
+        assertNotEquals(textHash("Flight 4/6/8 oz"), textHash("Flight 4/6/10 oz"));
+    }
+
+    @Test
+    public void testPdfReexportsAreIgnored() throws IOException {
+        assertEquals(pdfHash("Hazy IPA 6.5%", 2024), pdfHash("Hazy IPA 6.5%", 2025));
+        assertNotEquals(pdfHash("Hazy IPA 6.5%", 2024), pdfHash("Porter 5.9%", 2024));
+    }
+}
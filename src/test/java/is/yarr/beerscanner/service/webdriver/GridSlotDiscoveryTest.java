@@ -0,0 +1,49 @@
+package is.yarr.beerscanner.service.webdriver;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for {@link GridSlotDiscovery}.
+ */
+public class GridSlotDiscoveryTest {
+
+    private final GridSlotDiscovery discovery = new GridSlotDiscovery(null, new ObjectMapper());
+
+    private int countChromeSlots(String status) throws IOException {
+        return discovery.countChromeSlots(new ByteArrayInputStream(status.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testCountsChromeSlotsOnNodesThatAreUp() throws IOException {
+        var status = """
+                {"value": {"ready": true, "nodes": [
+                  {"availability": "UP", "slots": [
+                    {"stereotype": {"browserName": "chrome"}},
+                    {"stereotype": {"browserName": "chrome"}},
+                    {"stereotype": {"browserName": "firefox"}}
+                  ]},
+                  {"availability": "DOWN", "slots": [
+                    {"stereotype": {"browserName": "chrome"}}
+                  ]},
+                  {"slots": [
+                    {"stereotype": {"browserName": "Chrome"}}
+                  ]}
+                ]}}
+                """;
+
+        assertEquals(3, countChromeSlots(status));
+    }
+
+    @Test
+    public void testNoNodesHaveNoSlots() throws IOException {
+        assertEquals(0, countChromeSlots("{\"value\": {\"ready\": false, \"nodes\": []}}"));
+        assertEquals(0, countChromeSlots("{\"value\": {\"ready\": true}}"));
+    }
+}
@@ -0,0 +1,99 @@
+package is.yarr.beerscanner.service.webdriver;
+
+import is.yarr.beerscanner.model.BarWebpageSettings;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link PageReadiness}.
+ */
+public class PageReadinessTest {
+
+    private static class TestClock extends Clock {
+        private Instant now = Instant.parse("2025-06-01T20:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    private final TestClock clock = new TestClock();
+    private final PageReadiness readiness = new PageReadiness(BarWebpageSettings.ReadinessStrategy.DOM_QUIET,
+            Duration.ofSeconds(15), Duration.ofMillis(500), clock);
+
+    private PageReadiness.QuietCondition condition(Object... signatures) {
+        var samples = new LinkedList<>(Arrays.asList(signatures));
+        return readiness.new QuietCondition(samples::poll);
+    }
+
+    @Test
+    public void testQuietOnceSignatureIsStableForQuietPeriod() {
+        var condition = condition("3", "3", "3");
+
+        assertNull(condition.isQuiet());
+        clock.advance(Duration.ofMillis(300));
+        assertNull(condition.isQuiet());
+        clock.advance(Duration.ofMillis(200));
+        assertTrue(condition.isQuiet());
+    }
+
+    @Test
+    public void testChangesRestartQuietPeriod() {
+        var condition = condition("1", "2", "2", "2");
+
+        assertNull(condition.isQuiet());
+        clock.advance(Duration.ofMillis(400));
+        assertNull(condition.isQuiet());
+        clock.advance(Duration.ofMillis(400));
+        assertNull(condition.isQuiet());
+        clock.advance(Duration.ofMillis(100));
+        assertTrue(condition.isQuiet());
+    }
+
+    @Test
+    public void testNotQuietWhileNotReady() {
+        var condition = condition(null, null, "5", "5");
+
+        assertNull(condition.isQuiet());
+        clock.advance(Duration.ofSeconds(1));
+        assertNull(condition.isQuiet());
+        clock.advance(Duration.ofSeconds(1));
+        assertNull(condition.isQuiet());
+        clock.advance(Duration.ofSeconds(1));
+        assertTrue(condition.isQuiet());
+    }
+
+    @Test
+    public void testBarTimeoutOverridesDefault() {
+        var settings = new BarWebpageSettings();
+        assertEquals(Duration.ofSeconds(15), readiness.timeout(settings));
+
+        settings.setReadinessTimeoutSeconds(45);
+        assertEquals(Duration.ofSeconds(45), readiness.timeout(settings));
+    }
+}
@@ -0,0 +1,75 @@
+package is.yarr.beerscanner.service.webdriver;
+
+import is.yarr.beerscanner.model.BarWebpageSettings;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Tests for {@link ResourceBlocking}.
+ */
+public class ResourceBlockingTest {
+
+    private static final List<String> PATTERNS = List.of("*.png", " *.woff2 ", "*googletagmanager.com/*", "");
+
+    private final ResourceBlocking resourceBlocking = new ResourceBlocking(true, PATTERNS, 0.05, () -> 0.5);
+
+    @Test
+    public void testBlocksDefaultPatterns() {
+        assertEquals(List.of("*.png", "*.woff2", "*googletagmanager.com/*"),
+                resourceBlocking.blockedUrlPatterns(new BarWebpageSettings()));
+    }
+
+    @Test
+    public void testBarCanTurnBlockingOff() {
+        var settings = new BarWebpageSettings();
+        settings.setBlockResources(false);
+
+        assertEquals(List.of(), resourceBlocking.blockedUrlPatterns(settings));
+        assertEquals(List.of(), new ResourceBlocking(false, PATTERNS, 0.05, () -> 0.5).blockedUrlPatterns(new BarWebpageSettings()));
+    }
+
+    @Test
+    public void testUnblockedPatternsUnblockEverythingTheyMatch() {
+        var settings = new BarWebpageSettings();
+        settings.setUnblockedResourcePatterns("https://cdn.bar.example.com/menu/taps.png,\n*googletagmanager.com/*");
+
+        assertEquals(List.of("*.woff2"), resourceBlocking.blockedUrlPatterns(settings));
+    }
+
+    @Test
+    public void testAppliesBlockedPatterns() {
+        var driver = mock(WebDriver.class, withSettings().extraInterfaces(HasCdp.class));
+
+        assertEquals(ResourceBlocking.Mode.ON, resourceBlocking.apply(driver, new BarWebpageSettings()));
+        verify((HasCdp) driver).executeCdpCommand("Network.setBlockedURLs",
+                Map.of("urls", List.of("*.png", "*.woff2", "*googletagmanager.com/*")));
+    }
+
+    @Test
+    public void testSampledScrapesLoadEverything() {
+        var driver = mock(WebDriver.class, withSettings().extraInterfaces(HasCdp.class));
+        var sampled = new ResourceBlocking(true, PATTERNS, 0.05, () -> 0.01);
+
+        assertEquals(ResourceBlocking.Mode.SAMPLED_OFF, sampled.apply(driver, new BarWebpageSettings()));
+        verify((HasCdp) driver).executeCdpCommand("Network.setBlockedURLs", Map.of("urls", List.of()));
+    }
+
+    @Test
+    public void testBarWithBlockingOffIsNotSampled() {
+        var driver = mock(WebDriver.class, withSettings().extraInterfaces(HasCdp.class));
+        var sampled = new ResourceBlocking(true, PATTERNS, 0.05, () -> 0.01);
+        var settings = new BarWebpageSettings();
+        settings.setBlockResources(false);
+
+        assertEquals(ResourceBlocking.Mode.OFF, sampled.apply(driver, settings));
+    }
+}
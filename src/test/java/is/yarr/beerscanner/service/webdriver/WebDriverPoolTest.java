@@ -0,0 +1,223 @@
+package is.yarr.beerscanner.service.webdriver;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Tests for {@link WebDriverPool}, with mocked Selenium sessions.
+ */
+public class WebDriverPoolTest {
+
+    private static final String HUB_URL = "http://hub.example.com:4444";
+
+    private final List<WebDriver> createdSessions = new ArrayList<>();
+    private final GridSlotDiscovery gridSlotDiscovery = mock(GridSlotDiscovery.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private WebDriverPool pool(int poolSize, int maxUses) {
+        return new WebDriverPool(HUB_URL, poolSize, Duration.ofMinutes(10), maxUses, Duration.ofSeconds(5), gridSlotDiscovery, meterRegistry, () -> {
+            var driver = mock(WebDriver.class, withSettings().extraInterfaces(JavascriptExecutor.class));
+            when(driver.manage()).thenReturn(mock(WebDriver.Options.class));
+            createdSessions.add(driver);
+            return driver;
+        });
+    }
+
+    private double capacity() {
+        return meterRegistry.get("beerscanner.webdriver.capacity").gauge().value();
+    }
+
+    @Test
+    public void testReturnedSessionIsReused() throws Exception {
+        var pool = pool(2, 10);
+
+        var first = pool.withSession(driver -> driver);
+        var second = pool.withSession(driver -> driver);
+
+        assertSame(first, second);
+        assertEquals(1, createdSessions.size());
+    }
+
+    @Test
+    public void testReturnedSessionIsReset() throws Exception {
+        var pool = pool(2, 10);
+
+        var driver = pool.withSession(session -> session);
+
+        var reset = inOrder(driver.manage(), driver);
+        reset.verify(driver.manage()).deleteAllCookies();
+        reset.verify((JavascriptExecutor) driver).executeScript(anyString());
+        reset.verify(driver).get("about:blank");
+        verify(driver, never()).quit();
+    }
+
+    @Test
+    public void testSessionThatCantBeResetIsReplaced() throws Exception {
+        var pool = pool(2, 10);
+
+        var first = pool.withSession(driver -> {
+            doThrow(new WebDriverException("Reset failed")).when(driver).get("about:blank");
+            return driver;
+        });
+        var second = pool.withSession(driver -> driver);
+
+        verify(first).quit();
+        assertNotSame(first, second);
+    }
+
+    @Test
+    public void testUnhealthySessionIsReplacedWhenBorrowed() throws Exception {
+        var pool = pool(2, 10);
+
+        var first = pool.withSession(driver -> driver);
+        when(first.getWindowHandle()).thenThrow(new WebDriverException("Chrome is gone"));
+        var second = pool.withSession(driver -> driver);
+
+        verify(first).quit();
+        assertNotSame(first, second);
+        assertEquals(2, createdSessions.size());
+    }
+
+    @Test
+    public void testSessionIsReplacedAfterMaxUses() throws Exception {
+        var pool = pool(2, 2);
+
+        var first = pool.withSession(driver -> driver);
+        assertSame(first, pool.withSession(driver -> driver));
+        verify(first).quit();
+
+        assertNotSame(first, pool.withSession(driver -> driver));
+        assertEquals(2, createdSessions.size());
+    }
+
+    @Test
+    public void testCrashedSessionIsReplaced() throws Exception {
+        var pool = pool(2, 10);
+
+        assertThrows(NoSuchSessionException.class, () -> pool.withSession(driver -> {
+            throw new NoSuchSessionException("Session is gone");
+        }));
+        var crashed = createdSessions.getFirst();
+        verify(crashed).quit();
+        verify(crashed, never()).get("about:blank");
+
+        assertNotSame(crashed, pool.withSession(driver -> driver));
+    }
+
+    @Test
+    public void testFailedTaskKeepsSession() throws Exception {
+        var pool = pool(2, 10);
+
+        assertThrows(IllegalStateException.class, () -> pool.withSession(driver -> {
+            throw new IllegalStateException("No menu on the page");
+        }));
+
+        assertSame(createdSessions.getFirst(), pool.withSession(driver -> driver));
+        assertEquals(1, createdSessions.size());
+    }
+
+    @Test
+    public void testShrinkingWithBorrowedPermits() throws InterruptedException {
+        var permits = new WebDriverPool.ResizableSemaphore(3);
+        permits.acquire(3);
+
+        permits.resize(3, 1);
+        assertEquals(-2, permits.availablePermits());
+
+        permits.release(2);
+        assertFalse(permits.tryAcquire());
+
+        permits.release();
+        assertEquals(1, permits.availablePermits());
+    }
+
+    @Test
+    public void testGrowingReleasesPermits() {
+        var permits = new WebDriverPool.ResizableSemaphore(1);
+
+        permits.resize(1, 3);
+
+        assertEquals(3, permits.availablePermits());
+    }
+
+    @Test
+    public void testSurplusSessionsAreQuitWhenGridShrinks() throws Exception {
+        var pool = pool(0, 10);
+        when(gridSlotDiscovery.discoverSlots(HUB_URL)).thenReturn(OptionalInt.of(3));
+        pool.refreshCapacity();
+        assertEquals(3, capacity());
+
+        // Three sessions are borrowed at once, and the grid shrinks to one slot while they're in use
+        pool.withSession(first -> pool.withSession(second -> pool.withSession(third -> {
+            when(gridSlotDiscovery.discoverSlots(HUB_URL)).thenReturn(OptionalInt.of(1));
+            pool.refreshCapacity();
+            return null;
+        })));
+
+        assertEquals(1, capacity());
+        verify(createdSessions.get(0)).quit();
+        verify(createdSessions.get(1)).quit();
+        verify(createdSessions.get(2), never()).quit();
+        assertSame(createdSessions.get(2), pool.withSession(driver -> driver));
+    }
+
+    @Test
+    public void testGridWithoutSlotsKeepsOneSession() {
+        var pool = pool(0, 10);
+        when(gridSlotDiscovery.discoverSlots(HUB_URL)).thenReturn(OptionalInt.of(0));
+
+        pool.refreshCapacity();
+        pool.refreshCapacity();
+
+        assertEquals(1, capacity());
+    }
+
+    @Test
+    public void testDiscoveryRunsWhenStarted() {
+        var pool = pool(0, 10);
+        when(gridSlotDiscovery.discoverSlots(HUB_URL)).thenReturn(OptionalInt.of(4));
+
+        try {
+            pool.startDiscovery();
+
+            // The first discovery doesn't wait for the discovery interval
+            verify(gridSlotDiscovery, timeout(5_000)).discoverSlots(HUB_URL);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testConfiguredPoolSizeIsNotRediscovered() {
+        var pool = pool(2, 10);
+
+        pool.refreshCapacity();
+
+        verify(gridSlotDiscovery, never()).discoverSlots(HUB_URL);
+        assertEquals(2, capacity());
+    }
+}